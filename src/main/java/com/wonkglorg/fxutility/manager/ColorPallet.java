@@ -5,6 +5,15 @@ public enum ColorPallet {
     NON("#ffffff", "#000000", "#ff0000", "#000000"),
     DARK("#333841", "#21252b", "#333841", "#cdd0d4"),
     ;
+
+    /**
+     * Names of the looked-up colors set by {@link #toStyle()}, stylesheets can use them like any other color
+     */
+    public static final String PRIMARY_COLOR = "-color-primary";
+    public static final String SECONDARY_COLOR = "-color-secondary";
+    public static final String HIGHLIGHT_COLOR = "-color-highlight";
+    public static final String TEXT_COLOR = "-color-text";
+
     private final String primary;
     private final String secondary;
     private final String highlight;
@@ -33,7 +42,25 @@ public enum ColorPallet {
     public String getText() {
         return text;
     }
-}
-
-
 
+    /**
+     * Creates an inline style defining the colors of this pallet as looked-up colors. The colors modena derives its look from are mapped to them as well,
+     * so default controls follow the pallet without their own stylesheet
+     *
+     * @return the style to set on the root of a scene
+     */
+    public String toStyle() {
+        return PRIMARY_COLOR + ": " + primary + ";"
+                + SECONDARY_COLOR + ": " + secondary + ";"
+                + HIGHLIGHT_COLOR + ": " + highlight + ";"
+                + TEXT_COLOR + ": " + text + ";"
+                + "-fx-base: " + PRIMARY_COLOR + ";"
+                + "-fx-background: " + SECONDARY_COLOR + ";"
+                + "-fx-control-inner-background: " + SECONDARY_COLOR + ";"
+                + "-fx-accent: " + HIGHLIGHT_COLOR + ";"
+                + "-fx-focus-color: " + HIGHLIGHT_COLOR + ";"
+                + "-fx-text-base-color: " + TEXT_COLOR + ";"
+                + "-fx-text-background-color: " + TEXT_COLOR + ";"
+                + "-fx-text-inner-color: " + TEXT_COLOR + ";";
+    }
+}
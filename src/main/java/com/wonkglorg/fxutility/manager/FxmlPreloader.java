@@ -0,0 +1,160 @@
+package com.wonkglorg.fxutility.manager;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.util.Callback;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Loads fxml files on a pool of worker threads, the finished scene graph is handed to the JavaFX Application Thread
+ * to be turned into its final form (for example a {@link javafx.scene.Scene}). Tasks with a higher priority are loaded first.
+ */
+public class FxmlPreloader {
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile Callback<Class<?>, Object> controllerFactory;
+
+    /**
+     * Creates a new preloader using all but one of the available cores
+     */
+    public FxmlPreloader() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Creates a new preloader
+     *
+     * @param threads the amount of worker threads
+     */
+    public FxmlPreloader(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Thread count must be at least 1");
+        int pool = POOL_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "fxml-preloader-" + pool + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Loads a fxml file in the background
+     *
+     * @param fxmlPath   the path to the fxml file
+     * @param priority   the priority of the task, higher priorities are loaded first
+     * @param onFxThread gets called on the JavaFX Application Thread with the loaded root and its loader, its result completes the future
+     * @param <T>        the type of the result
+     * @return a future that completes on the JavaFX Application Thread once the fxml file has been loaded, or with a {@link CancellationException} if the preloader is shut down first
+     */
+    public <T> CompletableFuture<T> submit(URL fxmlPath, int priority, BiFunction<Parent, FXMLLoader, T> onFxThread) {
+        if (fxmlPath == null) throw new NullPointerException("Path cannot be null!");
+        CompletableFuture<T> future = new CompletableFuture<>();
+        PreloadTask task = new PreloadTask(priority, sequence.getAndIncrement(), future, () -> {
+            if (future.isDone()) return;
+            FXMLLoader loader;
+            Parent root;
+            try {
+                loader = new FXMLLoader(fxmlPath);
+                Callback<Class<?>, Object> factory = controllerFactory;
+                if (factory != null) loader.setControllerFactory(factory);
+                root = loader.load();
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(new RuntimeException("Could not load: " + fxmlPath, e));
+                return;
+            }
+            try {
+                Platform.runLater(() -> {
+                    try {
+                        future.complete(onFxThread.apply(root, loader));
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // the toolkit is not running or has exited, nothing would ever complete the future
+                future.completeExceptionally(new RuntimeException("Could not hand over: " + fxmlPath, e));
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new CancellationException("Preloader was shut down"));
+        }
+        return future;
+    }
+
+    /**
+     * Sets the factory creating the controllers of all files loaded from now on
+     *
+     * @param controllerFactory the factory or null to create controllers with their no argument constructor
+     */
+    public void setControllerFactory(Callback<Class<?>, Object> controllerFactory) {
+        this.controllerFactory = controllerFactory;
+    }
+
+    public Callback<Class<?>, Object> getControllerFactory() {
+        return controllerFactory;
+    }
+
+    /**
+     * @return the amount of tasks waiting to be loaded
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops the worker threads, queued tasks are discarded and their futures complete with a {@link CancellationException}
+     */
+    public void shutdown() {
+        for (Runnable runnable : executor.shutdownNow()) {
+            if (runnable instanceof PreloadTask task) task.future.cancel(false);
+        }
+    }
+
+    /**
+     * A queued task, ordered by priority and then by submission order
+     */
+    private static class PreloadTask implements Runnable, Comparable<PreloadTask> {
+        private final int priority;
+        private final long sequence;
+        private final CompletableFuture<?> future;
+        private final Runnable runnable;
+
+        PreloadTask(int priority, long sequence, CompletableFuture<?> future, Runnable runnable) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.future = future;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(PreloadTask other) {
+            int compare = Integer.compare(other.priority, priority);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -1,25 +1,54 @@
 package com.wonkglorg.fxutility.manager;
 
 import com.wonkglorg.fxutility.manager.util.ChooserUtil;
+import javafx.application.Platform;
 import javafx.css.Stylesheet;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import javafx.util.Callback;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class ManagedApplication extends javafx.application.Application {
-    private final Map<String, Map.Entry<Scene, FXMLLoader>> scenes = new HashMap<>();
-    private final Map<Class<? extends Node>, Map<String, Map.Entry<? super Node, FXMLLoader>>> nodeMap = new HashMap<>();
+    private static final String FXML_NAMESPACE_PREFIX = "http://javafx.com/fxml";
+    private final Map<String, Map.Entry<Scene, FXMLLoader>> scenes = new ConcurrentHashMap<>();
+    private final Map<String, URL> lazyScenes = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Map.Entry<Scene, FXMLLoader>>> loadingScenes = new ConcurrentHashMap<>();
+    private final Map<String, Long> sceneLoadTimes = new ConcurrentHashMap<>();
+    private final Map<String, URL> sceneSources = new ConcurrentHashMap<>();
+    private final Map<String, Long> sceneAccess = new ConcurrentHashMap<>();
+    private final Map<String, EvictedScene> evictedScenes = new ConcurrentHashMap<>();
+    private final AtomicLong accessCounter = new AtomicLong();
+    private volatile int maxLoadedScenes = 0;
+    private volatile boolean evictOnMemoryPressure = false;
+    private final Runnable memoryPressureListener = () -> Platform.runLater(this::evictForMemoryPressure);
+    private final NodeRegistry nodeRegistry = new NodeRegistry();
     private Stage primaryStage;
+    private FxmlPreloader preloader;
+    private volatile Callback<Class<?>, Object> controllerFactory;
     private final Map<String, Stylesheet> cssMap = new HashMap<>();
+    private volatile StylesheetManager stylesheetManager = new StylesheetManager();
+    private volatile ColorPallet theme;
     private static ManagedApplication instance;
     private static ChooserUtil chooserUtil;
 
@@ -47,16 +76,295 @@ public abstract class ManagedApplication extends javafx.application.Application
      */
     public Scene addScene(String name, URL fxmlPath) {
         if (fxmlPath == null) throw new NullPointerException("Path for: \"" + name + "\" cannot be null!");
-        FXMLLoader loader = new FXMLLoader(fxmlPath);
-        Parent root = null;
+        Map.Entry<Scene, FXMLLoader> entry = createScene(name, fxmlPath);
+        synchronized (lazyScenes) {
+            evictedScenes.remove(name);
+            registerScene(name, fxmlPath, entry);
+        }
+        return entry.getKey();
+    }
+
+    /**
+     * Registers a scene without loading it, the fxml file is only loaded the first time the scene is requested by
+     * {@link #loadScene(String)}, {@link #getScene(String)} or {@link #getController(String)}
+     *
+     * @param name     the name of the scene
+     * @param fxmlPath the path to the fxml file
+     */
+    public void addSceneLazy(String name, URL fxmlPath) {
+        if (fxmlPath == null) throw new NullPointerException("Path for: \"" + name + "\" cannot be null!");
+        synchronized (lazyScenes) {
+            scenes.remove(name);
+            evictedScenes.remove(name);
+            sceneSources.put(name, fxmlPath);
+            lazyScenes.put(name, fxmlPath);
+        }
+    }
+
+    /**
+     * Checks if a scene has been loaded already, lazily added scenes are not loaded until they are first requested
+     *
+     * @param name the name of the scene
+     * @return true if the scene is loaded
+     */
+    public boolean isSceneLoaded(String name) {
+        return scenes.containsKey(name);
+    }
+
+    /**
+     * Resolves a scene by its name, loading it if it was added lazily and has not been loaded yet. Concurrent requests for the same scene
+     * share one load, the fxml file is loaded without holding any lock so loads of different scenes do not wait for each other
+     *
+     * @param name the name of the scene
+     * @return the scene and its loader or null if no scene with that name exists
+     */
+    private Map.Entry<Scene, FXMLLoader> resolveScene(String name) {
+        Map.Entry<Scene, FXMLLoader> entry = scenes.get(name);
+        if (entry != null) {
+            sceneAccess.put(name, accessCounter.incrementAndGet());
+            return entry;
+        }
+
+        CompletableFuture<Map.Entry<Scene, FXMLLoader>> future;
+        URL fxmlPath = null;
+        synchronized (lazyScenes) {
+            entry = scenes.get(name);
+            if (entry != null) return entry;
+
+            future = loadingScenes.get(name);
+            if (future == null) {
+                fxmlPath = lazyScenes.get(name);
+                if (fxmlPath == null) return null;
+                future = new CompletableFuture<>();
+                loadingScenes.put(name, future);
+            }
+        }
+
+        if (fxmlPath != null) loadLazyScene(name, fxmlPath, future);
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new RuntimeException("Could not load scene: " + name, e.getCause());
+        }
+    }
+
+    /**
+     * Loads a lazily added scene and completes the future other requests for it are waiting on
+     */
+    private void loadLazyScene(String name, URL fxmlPath, CompletableFuture<Map.Entry<Scene, FXMLLoader>> future) {
+        Map.Entry<Scene, FXMLLoader> entry;
+        try {
+            entry = createScene(name, fxmlPath);
+        } catch (Throwable e) {
+            // errors as well, for example from the static init of a controller, otherwise every later request waits forever
+            synchronized (lazyScenes) {
+                loadingScenes.remove(name, future);
+            }
+            future.completeExceptionally(e);
+            if (e instanceof Error error) throw error;
+            return;
+        }
+
+        synchronized (lazyScenes) {
+            loadingScenes.remove(name, future);
+            // the scene could have been added or preloaded while it was loading, the scene added first is kept
+            Map.Entry<Scene, FXMLLoader> existing = scenes.get(name);
+            if (existing != null) {
+                entry = existing;
+            } else if (fxmlPath.equals(lazyScenes.get(name))) {
+                registerScene(name, fxmlPath, entry);
+            }
+        }
+        future.complete(entry);
+    }
+
+    /**
+     * Adds a loaded scene, restores the state it had before it was evicted and evicts other scenes if the limits are exceeded.
+     * Must be called while holding the lock on {@link #lazyScenes}
+     *
+     * @param name     the name of the scene
+     * @param fxmlPath the path to the fxml file
+     * @param entry    the scene and its loader
+     */
+    private void registerScene(String name, URL fxmlPath, Map.Entry<Scene, FXMLLoader> entry) {
+        scenes.put(name, entry);
+        lazyScenes.remove(name);
+        sceneSources.put(name, fxmlPath);
+        sceneAccess.put(name, accessCounter.incrementAndGet());
+
+        ColorPallet currentTheme = theme;
+        if (currentTheme != null) ThemeManager.apply(entry.getKey().getRoot(), currentTheme);
+
+        EvictedScene evicted = evictedScenes.remove(name);
+        if (evicted != null) {
+            entry.getKey().getStylesheets().setAll(evicted.stylesheets);
+            if (evicted.state != null && entry.getValue().getController() instanceof ManagedController controller) {
+                controller.restoreState(evicted.state);
+            }
+        }
+
+        if (maxLoadedScenes > 0) {
+            evictScenes(name, maxLoadedScenes);
+        }
+    }
+
+    /**
+     * Evicts the least recently used scenes until at most the given amount of scenes is loaded, scenes that are currently showing are kept
+     *
+     * @param keep  the name of a scene that should not be evicted
+     * @param limit the amount of scenes that may stay loaded
+     */
+    private void evictScenes(String keep, int limit) {
+        List<String> candidates = new ArrayList<>(scenes.keySet());
+        candidates.remove(keep);
+        candidates.sort((a, b) -> Long.compare(sceneAccess.getOrDefault(a, 0L), sceneAccess.getOrDefault(b, 0L)));
+        for (String candidate : candidates) {
+            if (scenes.size() <= limit) return;
+            evictScene(candidate);
+        }
+    }
+
+    /**
+     * Unloads a scene, it is loaded again the next time it is requested. If the controller is a {@link ManagedController}
+     * its {@link ManagedController#saveState()} is passed to the controller of the reloaded scene
+     *
+     * @param name the name of the scene
+     * @return true if the scene was evicted, false if it is not loaded, is currently showing or was not loaded from a fxml file
+     */
+    public boolean evictScene(String name) {
+        synchronized (lazyScenes) {
+            Map.Entry<Scene, FXMLLoader> entry = scenes.get(name);
+            URL fxmlPath = sceneSources.get(name);
+            if (entry == null || fxmlPath == null) return false;
+
+            Scene scene = entry.getKey();
+            if (scene.getWindow() != null && scene.getWindow().isShowing()) return false;
+
+            Object state = null;
+            if (entry.getValue().getController() instanceof ManagedController controller) {
+                state = controller.saveState();
+            }
+            evictedScenes.put(name, new EvictedScene(state, List.copyOf(scene.getStylesheets())));
+            scenes.remove(name);
+            sceneAccess.remove(name);
+            lazyScenes.put(name, fxmlPath);
+            return true;
+        }
+    }
+
+    /**
+     * Sets the maximum amount of loaded scenes, once it is exceeded the least recently used scenes are evicted
+     *
+     * @param maxLoadedScenes the maximum amount of loaded scenes or 0 for no limit
+     */
+    public void setMaxLoadedScenes(int maxLoadedScenes) {
+        if (maxLoadedScenes < 0) throw new IllegalArgumentException("Scene limit cannot be negative");
+        this.maxLoadedScenes = maxLoadedScenes;
+        if (maxLoadedScenes > 0) {
+            synchronized (lazyScenes) {
+                evictScenes(null, maxLoadedScenes);
+            }
+        }
+    }
+
+    public int getMaxLoadedScenes() {
+        return maxLoadedScenes;
+    }
+
+    /**
+     * Evicts scenes once the heap is still above the {@link #setMemoryPressureThreshold(double) threshold} after a garbage collection.
+     * Each time the least recently used half of the loaded scenes is evicted, scenes that are showing are kept.
+     * While the heap stays above the threshold this is repeated every few seconds
+     *
+     * @param evictOnMemoryPressure true to evict scenes under memory pressure
+     */
+    public void setEvictOnMemoryPressure(boolean evictOnMemoryPressure) {
+        this.evictOnMemoryPressure = evictOnMemoryPressure;
+        if (evictOnMemoryPressure) MemoryPressureMonitor.getInstance().addListener(memoryPressureListener);
+        else MemoryPressureMonitor.getInstance().removeListener(memoryPressureListener);
+    }
+
+    /**
+     * Sets how full the heap can be after a garbage collection before scenes are evicted, applies to all applications in this vm
+     *
+     * @param threshold the fraction of the heap between 0 and 1, defaults to 0.85
+     */
+    public void setMemoryPressureThreshold(double threshold) {
+        MemoryPressureMonitor.getInstance().setThreshold(threshold);
+    }
+
+    public double getMemoryPressureThreshold() {
+        return MemoryPressureMonitor.getInstance().getThreshold();
+    }
+
+    private void evictForMemoryPressure() {
+        if (!evictOnMemoryPressure) return;
+        synchronized (lazyScenes) {
+            evictScenes(null, scenes.size() / 2);
+        }
+    }
+
+    public boolean isEvictOnMemoryPressure() {
+        return evictOnMemoryPressure;
+    }
+
+    /**
+     * Loads the fxml file and creates a scene for it, the time it took is recorded in {@link #getSceneLoadTimes()}
+     *
+     * @param name     the name of the scene
+     * @param fxmlPath the path to the fxml file
+     * @return the scene and its loader
+     */
+    private Map.Entry<Scene, FXMLLoader> createScene(String name, URL fxmlPath) {
+        long start = System.nanoTime();
+        FXMLLoader loader;
         try {
-            root = loader.load();
+            loader = createLoader(fxmlPath);
         } catch (IOException e) {
             throw new RuntimeException("Could not load scene: " + fxmlPath, e);
         }
-        Scene scene = new Scene(root);
-        scenes.put(name, Map.entry(scene, loader));
-        return scene;
+        Scene scene = new Scene(loader.getRoot());
+        sceneLoadTimes.put(name, System.nanoTime() - start);
+        return Map.entry(scene, loader);
+    }
+
+    /**
+     * Loads a scene in the background and adds it once it is done, the fxml file is parsed on a worker thread and the scene is created on the JavaFX Application Thread
+     *
+     * @param name     the name of the scene
+     * @param fxmlPath the path to the fxml file
+     * @param priority the priority of the scene, higher priorities are loaded first
+     * @return a future completing with the scene, if the scene got loaded in the meantime the already loaded scene is returned instead
+     */
+    public CompletableFuture<Scene> preloadScene(String name, URL fxmlPath, int priority) {
+        if (fxmlPath == null) throw new NullPointerException("Path for: \"" + name + "\" cannot be null!");
+        return getPreloader().submit(fxmlPath, priority, (root, loader) -> {
+            synchronized (lazyScenes) {
+                Map.Entry<Scene, FXMLLoader> entry = scenes.get(name);
+                if (entry != null) return entry.getKey();
+                entry = Map.entry(new Scene(root), loader);
+                registerScene(name, fxmlPath, entry);
+                return entry.getKey();
+            }
+        });
+    }
+
+    /**
+     * Loads a lazily added scene in the background
+     *
+     * @param name     the name of the scene
+     * @param priority the priority of the scene, higher priorities are loaded first
+     * @return a future completing with the scene
+     */
+    public CompletableFuture<Scene> preloadScene(String name, int priority) {
+        Map.Entry<Scene, FXMLLoader> entry = scenes.get(name);
+        if (entry != null) return CompletableFuture.completedFuture(entry.getKey());
+
+        URL fxmlPath = lazyScenes.get(name);
+        if (fxmlPath == null) throw new RuntimeException("Scene not found: " + name);
+        return preloadScene(name, fxmlPath, priority);
     }
 
     /**
@@ -76,7 +384,9 @@ public abstract class ManagedApplication extends javafx.application.Application
      */
     public void loadScene(Stage stage, String name) {
         Objects.requireNonNull(stage);
-        stage.setScene(scenes.get(name).getKey());
+        Map.Entry<Scene, FXMLLoader> entry = resolveScene(name);
+        if (entry == null) throw new RuntimeException("Scene not found: " + name);
+        stage.setScene(entry.getKey());
         stage.show();
     }
 
@@ -87,29 +397,31 @@ public abstract class ManagedApplication extends javafx.application.Application
      * @return the scene and its matching controller
      */
     public Map.Entry<Scene, FXMLLoader> getScene(String name) {
-        return scenes.get(name);
+        return resolveScene(name);
     }
 
 
     /**
-     * Gets a node from the map with a specific type
+     * Gets a node by its name if it is of a specific type
      *
-     * @param key
-     * @param clazz
-     * @param <T>
-     * @return
+     * @param key   the name of the node
+     * @param clazz the type of the node, super classes and interfaces of the node work as well
+     * @param <T>   the type of the node
+     * @return the node or null if there is none or it is not of the type
      */
     public <T extends Node> T getNode(String key, Class<T> clazz) {
+        return nodeRegistry.get(key, clazz);
+    }
 
-        if (!nodeMap.containsKey(clazz)) {
-            return null;
-        }
-
-        Node node = (Node) nodeMap.get(clazz).get(key).getKey();
-        if (clazz.isInstance(node)) {
-            return clazz.cast(node);
-        }
-        return null;
+    /**
+     * Gets all registered nodes of a specific type
+     *
+     * @param clazz the type of the nodes, super classes and interfaces of the nodes work as well
+     * @param <T>   the type of the nodes
+     * @return the names of the nodes and the nodes
+     */
+    public <T> Map<String, T> getNodes(Class<T> clazz) {
+        return nodeRegistry.getAll(clazz);
     }
 
     /**
@@ -128,16 +440,17 @@ public abstract class ManagedApplication extends javafx.application.Application
     }
 
     /**
-     * Gets a controller based on the path to the fxml file
+     * Gets a controller based on the path to the fxml file, the whole view is loaded so the controller gets its nodes injected.
+     * Every call loads a new view with its own controller, use {@link #getControllerType(String)} if only the type is needed
      *
      * @param path the path to the fxml file
      * @param <T>  the type of the controller
      * @return the controller
      */
     public <T> T getControllerClassFromPath(String path) {
-        FXMLLoader loader = new FXMLLoader(getResource(path));
+        FXMLLoader loader;
         try {
-            loader.load();
+            loader = createLoader(getResource(path));
         } catch (IOException e) {
             throw new RuntimeException("Could not load controller: " + path, e);
         }
@@ -145,43 +458,213 @@ public abstract class ManagedApplication extends javafx.application.Application
     }
 
     /**
-     * Adds a new node
+     * Gets the controller class declared in a fxml file without loading the view
+     *
+     * @param path the path to the fxml file
+     * @return the controller class or null if the file declares no controller
+     */
+    public Class<?> getControllerType(String path) {
+        try {
+            String controllerName = readControllerName(getResource(path));
+            if (controllerName == null) return null;
+            return Class.forName(controllerName, false, Thread.currentThread().getContextClassLoader());
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Could not load controller: " + path, e);
+        }
+    }
+
+    /**
+     * Creates a new instance of the controller declared in a fxml file without loading the view, using the controller factory if one is set.
+     * No fields are injected and {@link ManagedController#init()} is not called since there are no nodes it could access,
+     * use {@link #getControllerClassFromPath(String)} if the controller needs its nodes
+     *
+     * @param path the path to the fxml file
+     * @param <T>  the type of the controller
+     * @return the controller or null if the file declares no controller
+     * @see #setControllerFactory(Callback)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T newController(String path) {
+        Class<?> controllerType = getControllerType(path);
+        if (controllerType == null) return null;
+        Callback<Class<?>, Object> controllerFactory = this.controllerFactory;
+        if (controllerFactory != null) return (T) controllerFactory.call(controllerType);
+        try {
+            return (T) controllerType.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not create controller: " + path, e);
+        }
+    }
+
+    /**
+     * Sets the factory creating the controllers of all scenes and nodes loaded from now on, including those loaded in the background
+     *
+     * @param controllerFactory the factory or null to create controllers with their no argument constructor
+     */
+    public synchronized void setControllerFactory(Callback<Class<?>, Object> controllerFactory) {
+        this.controllerFactory = controllerFactory;
+        if (preloader != null) preloader.setControllerFactory(controllerFactory);
+    }
+
+    public Callback<Class<?>, Object> getControllerFactory() {
+        return controllerFactory;
+    }
+
+    /**
+     * Loads a fxml file with the controller factory
+     *
+     * @param fxmlPath the path to the fxml file
+     * @return the loader after loading the file
+     */
+    private FXMLLoader createLoader(URL fxmlPath) throws IOException {
+        FXMLLoader loader = new FXMLLoader(fxmlPath);
+        Callback<Class<?>, Object> factory = controllerFactory;
+        if (factory != null) loader.setControllerFactory(factory);
+        loader.load();
+        return loader;
+    }
+
+    /**
+     * Reads the controller class declared with fx:controller, only the root element is read
+     *
+     * @param fxmlPath the path to the fxml file
+     * @return the name of the controller class or null if the file declares no controller
+     * @throws IOException if the file could not be read or is not valid xml
+     */
+    private static String readControllerName(URL fxmlPath) throws IOException {
+        if (fxmlPath == null) throw new NullPointerException("Path cannot be null!");
+        try (InputStream inputStream = fxmlPath.openStream()) {
+            XMLInputFactory factory = XMLInputFactory.newFactory();
+            // only the root element is needed, doctypes and external entities are never resolved
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamReader.START_ELEMENT) continue;
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        String namespace = reader.getAttributeNamespace(i);
+                        if ("controller".equals(reader.getAttributeLocalName(i)) && namespace != null && namespace.startsWith(FXML_NAMESPACE_PREFIX)) {
+                            return reader.getAttributeValue(i);
+                        }
+                    }
+                    return null;
+                }
+                return null;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read controller of: " + fxmlPath, e);
+        }
+    }
+
+    /**
+     * Adds a new node, it is kept until it is {@link #removeNode(String) removed}. A name can only be used by one node, no matter its type
      *
      * @param name     name of the node to be accessed in the map
      * @param fxmlPath path to the fxml file
-     * @throws IOException
+     * @return true if the node was added, false if another node is already registered under the name, the loaded node is discarded then
      */
-    public void addNode(String name, URL fxmlPath) {
+    public boolean addNode(String name, URL fxmlPath) {
+        return addNode(name, fxmlPath, false);
+    }
+
+    /**
+     * Adds a new node. A name can only be used by one node, no matter its type
+     *
+     * @param name     name of the node to be accessed in the map
+     * @param fxmlPath path to the fxml file
+     * @param weak     true to only keep the node until it was added to a scene, after that it is removed once it is no longer used anywhere else
+     * @return true if the node was added, false if another node is already registered under the name, the loaded node is discarded then
+     */
+    public boolean addNode(String name, URL fxmlPath, boolean weak) {
         if (fxmlPath == null) throw new NullPointerException("Path for: \"" + name + "\" cannot be null!");
-        FXMLLoader loader = new FXMLLoader(fxmlPath);
-        Node node = null;
+        FXMLLoader loader;
         try {
-            node = loader.load();
+            loader = createLoader(fxmlPath);
         } catch (IOException e) {
             throw new RuntimeException("Could not load node: " + fxmlPath, e);
         }
-        addNodeIfAbsent(node, loader, name);
+        Node node = loader.getRoot();
+        return addNodeIfAbsent(node, loader, name, weak) == node;
     }
 
     /**
-     * Adds a new node
+     * Loads a node in the background and adds it once it is done, it is kept until it is {@link #removeNode(String) removed}
+     *
+     * @param name     name of the node to be accessed in the map
+     * @param fxmlPath path to the fxml file
+     * @param priority the priority of the node, higher priorities are loaded first
+     * @return a future completing with the registered node on the JavaFX Application Thread, this is the node that was already
+     * registered under the name if there was one
+     */
+    public CompletableFuture<Node> preloadNode(String name, URL fxmlPath, int priority) {
+        return preloadNode(name, fxmlPath, priority, false);
+    }
+
+    /**
+     * Loads a node in the background and adds it once it is done
+     *
+     * @param name     name of the node to be accessed in the map
+     * @param fxmlPath path to the fxml file
+     * @param priority the priority of the node, higher priorities are loaded first
+     * @param weak     true to only keep the node until it was added to a scene, after that it is removed once it is no longer used anywhere else
+     * @return a future completing with the registered node on the JavaFX Application Thread, this is the node that was already
+     * registered under the name if there was one
+     */
+    public CompletableFuture<Node> preloadNode(String name, URL fxmlPath, int priority, boolean weak) {
+        if (fxmlPath == null) throw new NullPointerException("Path for: \"" + name + "\" cannot be null!");
+        return getPreloader().submit(fxmlPath, priority, (root, loader) -> addNodeIfAbsent(root, loader, name, weak));
+    }
+
+    /**
+     * Adds a new node, it is kept until it is {@link #removeNode(String) removed}. A name can only be used by one node, no matter its type
      *
      * @param node
      * @param name
+     * @return true if the node was added, false if another node is already registered under the name
      */
-    public void addNode(Node node, String name) {
-        addNodeIfAbsent(node, null, name);
+    public boolean addNode(Node node, String name) {
+        return addNode(node, name, false);
     }
 
     /**
-     * Utility function to add a node to the map if it is not already present
+     * Adds a new node. A name can only be used by one node, no matter its type
      *
      * @param node
      * @param name
+     * @param weak true to only keep the node until it was added to a scene, after that it is removed once it is no longer used anywhere else
+     * @return true if the node was added, false if another node is already registered under the name
      */
-    private void addNodeIfAbsent(Node node, FXMLLoader loader, String name) {
-        nodeMap.putIfAbsent(node.getClass(), new HashMap<>());
-        nodeMap.get(node.getClass()).putIfAbsent(name, Map.entry(node, loader));
+    public boolean addNode(Node node, String name, boolean weak) {
+        return addNodeIfAbsent(node, null, name, weak) == node;
+    }
+
+    /**
+     * Utility function to add a node to the registry if no node is registered under its name
+     *
+     * @param node
+     * @param name
+     * @return the node registered under the name
+     */
+    private Node addNodeIfAbsent(Node node, FXMLLoader loader, String name, boolean weak) {
+        while (!nodeRegistry.register(name, node, loader, weak)) {
+            // the registered node can be collected in between if it is weak, the name is free again then
+            Node current = nodeRegistry.get(name);
+            if (current != null) return current;
+        }
+        return node;
+    }
+
+    /**
+     * Removes a node from the registry
+     *
+     * @param name the name of the node
+     * @return the removed node or null if there was none
+     */
+    public Node removeNode(String name) {
+        return nodeRegistry.remove(name);
     }
 
     /**
@@ -195,19 +678,17 @@ public abstract class ManagedApplication extends javafx.application.Application
     }
 
     /**
-     * Adds a css file to the css map
+     * Adds a css file to the css map, it is compiled to binary css first so scenes using it do not have to parse it
      *
      * @param name The name of the css file
-     * @param path The path to the css file
+     * @param path The path to the css or bss file
      */
     public void addStylesheet(String name, URL path) {
-        Stylesheet stylesheet = null;
         try {
-            stylesheet = Stylesheet.loadBinary(path);
+            cssMap.put(name, stylesheetManager.load(path));
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new RuntimeException("Could not load stylesheet: " + path, e);
         }
-        cssMap.put(name, stylesheet);
     }
 
     /**
@@ -218,12 +699,89 @@ public abstract class ManagedApplication extends javafx.application.Application
      */
     public void setStylesheetForScene(String sceneName, String cssName) {
 
-        if (!scenes.containsKey(sceneName)) throw new RuntimeException("Scene not found: " + sceneName);
-        Scene scene = scenes.get(sceneName).getKey();
+        Map.Entry<Scene, FXMLLoader> entry = resolveScene(sceneName);
+        if (entry == null) throw new RuntimeException("Scene not found: " + sceneName);
+        Scene scene = entry.getKey();
 
         if (!cssMap.containsKey(cssName)) throw new RuntimeException("CSS not found: " + cssName);
 
-        scene.getStylesheets().add(cssMap.get(cssName).getUrl());
+        String url = cssMap.get(cssName).getUrl();
+        if (!scene.getStylesheets().contains(url)) scene.getStylesheets().add(url);
+    }
+
+    /**
+     * Sets the stylesheets of multiple scenes at once, replacing their current stylesheets. Each scene has its css applied once
+     * instead of once per stylesheet. Scenes that are not loaded are not loaded for this, like with {@link #swapStylesheets(List, List)}
+     * they get the stylesheets once they are loaded
+     *
+     * @param sceneNames The names of the scenes
+     * @param cssNames   The names of the css files in the order they should be applied
+     */
+    public void setStylesheetsForScenes(Collection<String> sceneNames, List<String> cssNames) {
+        List<String> urls = List.copyOf(getStylesheetUrls(cssNames));
+        List<Scene> sceneList = new ArrayList<>(sceneNames.size());
+        synchronized (lazyScenes) {
+            for (String sceneName : sceneNames) {
+                if (!scenes.containsKey(sceneName) && !lazyScenes.containsKey(sceneName)) throw new RuntimeException("Scene not found: " + sceneName);
+            }
+            for (String sceneName : sceneNames) {
+                Map.Entry<Scene, FXMLLoader> entry = scenes.get(sceneName);
+                if (entry != null) {
+                    sceneList.add(entry.getKey());
+                } else {
+                    evictedScenes.compute(sceneName, (name, evicted) -> new EvictedScene(evicted == null ? null : evicted.state, urls));
+                }
+            }
+        }
+        stylesheetManager.apply(sceneList, urls);
+    }
+
+    /**
+     * Replaces stylesheets in every scene using them, in one change per scene. Evicted scenes get the new stylesheets once they are loaded again
+     *
+     * @param oldCssNames The names of the css files to remove
+     * @param newCssNames The names of the css files to add in their place
+     */
+    public void swapStylesheets(List<String> oldCssNames, List<String> newCssNames) {
+        List<String> remove = getStylesheetUrls(oldCssNames);
+        List<String> add = getStylesheetUrls(newCssNames);
+
+        List<Scene> sceneList = new ArrayList<>();
+        for (Map.Entry<Scene, FXMLLoader> entry : scenes.values()) {
+            if (!Collections.disjoint(entry.getKey().getStylesheets(), remove)) sceneList.add(entry.getKey());
+        }
+        stylesheetManager.swap(sceneList, remove, add);
+
+        evictedScenes.replaceAll((name, evicted) -> Collections.disjoint(evicted.stylesheets, remove) ? evicted
+                : new EvictedScene(evicted.state, List.copyOf(StylesheetManager.swap(evicted.stylesheets, remove, add))));
+    }
+
+    /**
+     * Sets the theme of all scenes, scenes loaded later get it as well. Switching themes only updates the root style of each scene,
+     * css is still applied to every node of a scene again
+     *
+     * @param theme The pallet to use or null to remove the theme
+     */
+    public void setTheme(ColorPallet theme) {
+        this.theme = theme;
+        for (Map.Entry<Scene, FXMLLoader> entry : scenes.values()) {
+            if (theme == null) ThemeManager.remove(entry.getKey().getRoot());
+            else ThemeManager.apply(entry.getKey().getRoot(), theme);
+        }
+    }
+
+    public ColorPallet getTheme() {
+        return theme;
+    }
+
+    private List<String> getStylesheetUrls(List<String> cssNames) {
+        List<String> urls = new ArrayList<>(cssNames.size());
+        for (String cssName : cssNames) {
+            Stylesheet stylesheet = cssMap.get(cssName);
+            if (stylesheet == null) throw new RuntimeException("CSS not found: " + cssName);
+            urls.add(stylesheet.getUrl());
+        }
+        return urls;
     }
 
     /**
@@ -234,8 +792,9 @@ public abstract class ManagedApplication extends javafx.application.Application
      * @return true if the css was removed successfully
      */
     public boolean removeStylesheetForScene(String sceneName, String cssName) {
-        if (!scenes.containsKey(sceneName)) throw new RuntimeException("Scene not found: " + sceneName);
-        Scene scene = scenes.get(sceneName).getKey();
+        Map.Entry<Scene, FXMLLoader> entry = resolveScene(sceneName);
+        if (entry == null) throw new RuntimeException("Scene not found: " + sceneName);
+        Scene scene = entry.getKey();
 
         if (!cssMap.containsKey(cssName)) throw new RuntimeException("CSS not found: " + cssName);
 
@@ -290,7 +849,9 @@ public abstract class ManagedApplication extends javafx.application.Application
      * @return
      */
     public <T> T getController(String sceneName) {
-        return scenes.get(sceneName).getValue().getController();
+        Map.Entry<Scene, FXMLLoader> entry = resolveScene(sceneName);
+        if (entry == null) throw new RuntimeException("Scene not found: " + sceneName);
+        return entry.getValue().getController();
     }
 
     /**
@@ -302,14 +863,11 @@ public abstract class ManagedApplication extends javafx.application.Application
      * @return the controller or null if the node has no controller
      */
     public <T> Optional<T> getController(String nodeName, Class<? extends Node> clazz) {
-        try {
-            T controller = nodeMap.get(clazz).get(nodeName).getValue().getController();
-            return controller == null ? Optional.empty() : Optional.of(controller);
-        } catch (NullPointerException e) {
-            throw new NullPointerException("Could not get controller for: " + nodeName);
-        } catch (Exception e) {
-            throw new RuntimeException("Could not get controller for: " + nodeName, e);
-        }
+        if (getNode(nodeName, clazz) == null) throw new RuntimeException("Node not found: " + nodeName);
+        FXMLLoader loader = nodeRegistry.getLoader(nodeName);
+        if (loader == null) return Optional.empty();
+        T controller = loader.getController();
+        return Optional.ofNullable(controller);
     }
 
     /**
@@ -325,6 +883,19 @@ public abstract class ManagedApplication extends javafx.application.Application
         return primaryStage;
     }
 
+    /**
+     * Gets the preloader used for background loading, it is created on first use
+     *
+     * @return the preloader
+     */
+    public synchronized FxmlPreloader getPreloader() {
+        if (preloader == null) {
+            preloader = new FxmlPreloader();
+            preloader.setControllerFactory(controllerFactory);
+        }
+        return preloader;
+    }
+
     public static ChooserUtil getChooser() {
         return chooserUtil;
     }
@@ -333,11 +904,73 @@ public abstract class ManagedApplication extends javafx.application.Application
         return scenes;
     }
 
+    /**
+     * Gets the scenes that have been added lazily and are not loaded yet
+     *
+     * @return an unmodifiable view of the scene names and their fxml paths
+     */
+    public Map<String, URL> getLazyScenes() {
+        return Collections.unmodifiableMap(lazyScenes);
+    }
+
+    /**
+     * Gets the time it took to load each scene, useful to measure how much startup time lazy scenes save
+     *
+     * @return an unmodifiable view of the scene names and their load time in nanoseconds
+     */
+    public Map<String, Long> getSceneLoadTimes() {
+        return Collections.unmodifiableMap(sceneLoadTimes);
+    }
+
+    /**
+     * Creates a copy of the registered nodes grouped by their class, changes to it are not reflected in the registry
+     *
+     * @return the nodes grouped by their class and name, with their loader or null
+     * @deprecated use {@link #getNodeRegistry()}, {@link #getNode(String, Class)} or {@link #getNodes(Class)}
+     */
+    @Deprecated
     public Map<Class<? extends Node>, Map<String, Map.Entry<? super Node, FXMLLoader>>> getNodeMap() {
+        Map<Class<? extends Node>, Map<String, Map.Entry<? super Node, FXMLLoader>>> nodeMap = new HashMap<>();
+        for (Map.Entry<String, Node> entry : nodeRegistry.snapshot().entrySet()) {
+            Node node = entry.getValue();
+            nodeMap.computeIfAbsent(node.getClass(), type -> new HashMap<>())
+                    .put(entry.getKey(), new AbstractMap.SimpleImmutableEntry<>(node, nodeRegistry.getLoader(entry.getKey())));
+        }
         return nodeMap;
     }
 
+    public NodeRegistry getNodeRegistry() {
+        return nodeRegistry;
+    }
+
     public Map<String, Stylesheet> getCssMap() {
         return cssMap;
     }
+
+    public StylesheetManager getStylesheetManager() {
+        return stylesheetManager;
+    }
+
+    /**
+     * Sets the manager compiling stylesheets added from now on, for example one using {@link StylesheetManager#getDefaultDirectory()}
+     * to keep the compiled files between starts. The default manager only keeps them for this run
+     *
+     * @param stylesheetManager the manager
+     */
+    public void setStylesheetManager(StylesheetManager stylesheetManager) {
+        this.stylesheetManager = Objects.requireNonNull(stylesheetManager);
+    }
+
+    /**
+     * What is kept of a scene that is not loaded, after it was evicted or for stylesheets set before it was first loaded
+     */
+    private static class EvictedScene {
+        private final Object state;
+        private final List<String> stylesheets;
+
+        EvictedScene(Object state, List<String> stylesheets) {
+            this.state = state;
+            this.stylesheets = stylesheets;
+        }
+    }
 }
@@ -15,6 +15,32 @@ public abstract class ManagedController {
         //default implementation
     }
 
+    /**
+     * Requests an {@link #update()} on the JavaFX Application Thread, can be called from any thread. Multiple requests before the next update are merged into one
+     */
+    public void requestUpdate() {
+        UpdateScheduler.getInstance().requestUpdate(this);
+    }
+
+    /**
+     * Gets called before the scene of this controller is evicted, the returned state is passed to {@link #restoreState(Object)}
+     * of the new controller once the scene is loaded again
+     *
+     * @return the state to keep or null if nothing needs to be kept
+     */
+    public Object saveState() {
+        return null;
+    }
+
+    /**
+     * Gets called after the scene of this controller was loaded again after being evicted, right after {@link #init()}
+     *
+     * @param state the state returned by {@link #saveState()}
+     */
+    public void restoreState(Object state) {
+        //default implementation
+    }
+
     @FXML
     void initialize() {
         init();
@@ -0,0 +1,137 @@
+package com.wonkglorg.fxutility.manager;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifies listeners when the heap is still filled above a threshold after a garbage collection. While the heap stays above the threshold
+ * the listeners are notified again in an interval, so freeing memory in steps keeps going until enough is freed.
+ */
+class MemoryPressureMonitor {
+
+    private static final long RECHECK_INTERVAL = 2000;
+    private static MemoryPressureMonitor instance;
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private final NotificationListener notificationListener = (notification, handback) -> {
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) onPressure();
+    };
+    private ScheduledThreadPoolExecutor scheduler;
+    private ScheduledFuture<?> recheck;
+    private double threshold = 0.85;
+
+    private MemoryPressureMonitor() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) pools.add(pool);
+        }
+    }
+
+    static synchronized MemoryPressureMonitor getInstance() {
+        if (instance == null) instance = new MemoryPressureMonitor();
+        return instance;
+    }
+
+    /**
+     * @param listener gets called on a background thread while the heap is above the threshold
+     */
+    synchronized void addListener(Runnable listener) {
+        if (listeners.isEmpty()) start();
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    synchronized void removeListener(Runnable listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) stop();
+    }
+
+    /**
+     * @param threshold the fraction of the maximum size of a heap pool that counts as memory pressure, between 0 and 1
+     */
+    synchronized void setThreshold(double threshold) {
+        if (threshold <= 0 || threshold >= 1) throw new IllegalArgumentException("Threshold must be between 0 and 1");
+        this.threshold = threshold;
+        if (!listeners.isEmpty()) applyThreshold();
+    }
+
+    synchronized double getThreshold() {
+        return threshold;
+    }
+
+    private void start() {
+        applyThreshold();
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(notificationListener, null, null);
+    }
+
+    private void stop() {
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(notificationListener);
+        } catch (ListenerNotFoundException ignored) {
+        }
+        if (recheck != null) recheck.cancel(false);
+        recheck = null;
+    }
+
+    private void applyThreshold() {
+        for (MemoryPoolMXBean pool : pools) {
+            long max = pool.getUsage().getMax();
+            if (max > 0) pool.setCollectionUsageThreshold((long) (max * threshold));
+        }
+    }
+
+    private boolean isExceeded() {
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getCollectionUsageThreshold() > 0 && pool.isCollectionUsageThresholdExceeded()) return true;
+        }
+        return false;
+    }
+
+    private synchronized void onPressure() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        // a notification is only sent again once the usage dropped below the threshold, so the pressure is checked until it is gone
+        if (recheck == null && !listeners.isEmpty()) {
+            recheck = getScheduler().scheduleWithFixedDelay(this::recheck, RECHECK_INTERVAL, RECHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gets the scheduler running the rechecks, its thread stops while there is nothing to recheck
+     */
+    private ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "memory-pressure-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            scheduler.setKeepAliveTime(RECHECK_INTERVAL * 2, TimeUnit.MILLISECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+        }
+        return scheduler;
+    }
+
+    private synchronized void recheck() {
+        if (isExceeded()) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+            return;
+        }
+        if (recheck != null) recheck.cancel(false);
+        recheck = null;
+    }
+}
@@ -0,0 +1,241 @@
+package com.wonkglorg.fxutility.manager;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nodes registered by name, they can be looked up by their name and by any of their super classes or interfaces.
+ * The registry can be used from any thread.
+ * <p>
+ * Nodes are kept until they are removed. Nodes registered as weak are only weakly referenced once they have been added to a scene,
+ * such a node that is removed from its scene and no longer used anywhere else is removed from the registry as well.
+ * <p>
+ * Every name can only be used by one node, no matter its type.
+ */
+public class NodeRegistry {
+
+    private static final String LOADER_KEY = NodeRegistry.class.getName() + ".loader";
+
+    private static final ClassValue<List<Class<?>>> TYPE_HIERARCHY = new ClassValue<>() {
+        @Override
+        protected List<Class<?>> computeValue(Class<?> type) {
+            Set<Class<?>> types = new LinkedHashSet<>();
+            collectTypes(type, types);
+            return List.copyOf(types);
+        }
+    };
+
+    private final Map<String, NodeReference> nodes = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<String>> typeIndex = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Node> queue = new ReferenceQueue<>();
+
+    /**
+     * Registers a node if no other node is registered under the name, the node is kept until it is {@link #remove(String) removed}
+     *
+     * @param name   the name of the node
+     * @param node   the node
+     * @param loader the loader the node was loaded with or null
+     * @return true if the node was registered
+     */
+    public boolean register(String name, Node node, FXMLLoader loader) {
+        return register(name, node, loader, false);
+    }
+
+    /**
+     * Registers a node if no other node is registered under the name
+     *
+     * @param name   the name of the node
+     * @param node   the node
+     * @param loader the loader the node was loaded with or null
+     * @param weak   true to only keep the node until it was added to a scene, after that it is removed once it is no longer used anywhere else
+     * @return true if the node was registered
+     */
+    public boolean register(String name, Node node, FXMLLoader loader, boolean weak) {
+        if (name == null || node == null) throw new NullPointerException("Name and node cannot be null!");
+        expungeStaleEntries();
+
+        NodeReference reference = new NodeReference(name, node, queue);
+        NodeReference current = nodes.putIfAbsent(name, reference);
+        // a collected node does not block its name
+        while (current != null && current.get() == null) {
+            if (nodes.replace(name, current, reference)) {
+                unindex(current);
+                current = null;
+            } else {
+                current = nodes.putIfAbsent(name, reference);
+            }
+        }
+        if (current != null) return false;
+
+        if (loader != null) node.getProperties().put(LOADER_KEY, loader);
+        for (Class<?> type : TYPE_HIERARCHY.get(reference.type)) {
+            typeIndex.computeIfAbsent(type, key -> ConcurrentHashMap.newKeySet()).add(name);
+        }
+        if (weak) reference.holdUntilShown(node);
+        else reference.strong = node;
+        return true;
+    }
+
+    /**
+     * Gets a node by its name
+     *
+     * @param name the name of the node
+     * @return the node or null if there is none
+     */
+    public Node get(String name) {
+        NodeReference reference = nodes.get(name);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * Gets a node by its name if it is of a type
+     *
+     * @param name the name of the node
+     * @param type the type of the node, super classes and interfaces of the node work as well
+     * @param <T>  the type of the node
+     * @return the node or null if there is none or it is not of the type
+     */
+    public <T> T get(String name, Class<T> type) {
+        Node node = get(name);
+        return type.isInstance(node) ? type.cast(node) : null;
+    }
+
+    /**
+     * Gets the loader a node was loaded with
+     *
+     * @param name the name of the node
+     * @return the loader or null if there is no node or it was not loaded from a fxml file
+     */
+    public FXMLLoader getLoader(String name) {
+        Node node = get(name);
+        return node == null ? null : (FXMLLoader) node.getProperties().get(LOADER_KEY);
+    }
+
+    /**
+     * Gets all nodes of a type
+     *
+     * @param type the type of the nodes, super classes and interfaces of the nodes work as well
+     * @param <T>  the type of the nodes
+     * @return the names of the nodes and the nodes
+     */
+    public <T> Map<String, T> getAll(Class<T> type) {
+        expungeStaleEntries();
+        Set<String> names = typeIndex.get(type);
+        Map<String, T> result = new HashMap<>();
+        if (names == null) return result;
+        for (String name : names) {
+            T node = get(name, type);
+            if (node != null) result.put(name, node);
+        }
+        return result;
+    }
+
+    /**
+     * Removes a node
+     *
+     * @param name the name of the node
+     * @return the removed node or null if there was none
+     */
+    public Node remove(String name) {
+        expungeStaleEntries();
+        NodeReference reference = nodes.remove(name);
+        if (reference == null) return null;
+        unindex(reference);
+        return reference.get();
+    }
+
+    /**
+     * @return true if a node is registered under the name
+     */
+    public boolean contains(String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * @return the amount of registered nodes, collected weak nodes that were not cleaned up yet are counted as well
+     */
+    public int size() {
+        expungeStaleEntries();
+        return nodes.size();
+    }
+
+    /**
+     * @return a copy of all registered names and their nodes
+     */
+    public Map<String, Node> snapshot() {
+        expungeStaleEntries();
+        Map<String, Node> result = new HashMap<>();
+        for (Map.Entry<String, NodeReference> entry : nodes.entrySet()) {
+            Node node = entry.getValue().get();
+            if (node != null) result.put(entry.getKey(), node);
+        }
+        return result;
+    }
+
+    /**
+     * Removes entries of weak nodes that have been garbage collected
+     */
+    private void expungeStaleEntries() {
+        Object polled;
+        while ((polled = queue.poll()) != null) {
+            NodeReference reference = (NodeReference) polled;
+            if (nodes.remove(reference.name, reference)) unindex(reference);
+        }
+    }
+
+    private void unindex(NodeReference reference) {
+        // the name could already be used by a new node, types it shares with the old node stay indexed
+        NodeReference current = nodes.get(reference.name);
+        for (Class<?> type : TYPE_HIERARCHY.get(reference.type)) {
+            if (current != null && type.isAssignableFrom(current.type)) continue;
+            Set<String> names = typeIndex.get(type);
+            if (names != null) names.remove(reference.name);
+        }
+    }
+
+    private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+        if (type == null || type == Object.class || !types.add(type)) return;
+        collectTypes(type.getSuperclass(), types);
+        for (Class<?> anInterface : type.getInterfaces()) {
+            collectTypes(anInterface, types);
+        }
+    }
+
+    private static final class NodeReference extends WeakReference<Node> {
+        private final String name;
+        private final Class<?> type;
+        // keeps nodes alive that are not weak or were not added to a scene yet, otherwise a node registered for later use could be collected right away
+        private volatile Node strong;
+
+        NodeReference(String name, Node node, ReferenceQueue<Node> queue) {
+            super(node, queue);
+            this.name = name;
+            this.type = node.getClass();
+        }
+
+        void holdUntilShown(Node node) {
+            if (node.getScene() != null) return;
+            strong = node;
+            node.sceneProperty().addListener(new ChangeListener<>() {
+                @Override
+                public void changed(ObservableValue<? extends Scene> observable, Scene oldValue, Scene newValue) {
+                    if (newValue == null) return;
+                    strong = null;
+                    observable.removeListener(this);
+                }
+            });
+        }
+    }
+}
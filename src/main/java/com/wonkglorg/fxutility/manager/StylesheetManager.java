@@ -0,0 +1,287 @@
+package com.wonkglorg.fxutility.manager;
+
+import com.wonkglorg.fxutility.manager.file.FileExecutors;
+import javafx.css.CssParser;
+import javafx.css.Stylesheet;
+import javafx.scene.Scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles css files to the binary css format so JavaFX does not have to parse them, and applies stylesheets to many scenes at once.
+ * <p>
+ * Compiled files are stored by the hash of their source and content, a stylesheet is only compiled again once it changes and the file
+ * compiled from its previous content is deleted then. By default the compiled files are kept in a temporary directory that is deleted
+ * when the vm exits, pass a directory such as {@link #getDefaultDirectory()} to reuse them on the next start. If a stylesheet cannot be
+ * compiled, for example because the directory cannot be written, the css file is used as it is.
+ */
+public class StylesheetManager {
+
+    private static final String CSS_EXTENSION = ".css";
+    private static final String BSS_EXTENSION = ".bss";
+
+    private final Path directory;
+    private final Map<String, URL> compiled = new ConcurrentHashMap<>();
+    private Path tempDirectory;
+
+    /**
+     * Creates a manager storing compiled stylesheets in a temporary directory for this run only, nothing is left behind once the vm exits
+     */
+    public StylesheetManager() {
+        this(null);
+    }
+
+    /**
+     * @param directory the directory compiled stylesheets are stored in and reused from on the next start, or null to use a temporary directory
+     */
+    public StylesheetManager(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets a directory in the home directory of the user to keep compiled stylesheets in between starts, separated by JavaFX version since
+     * the binary format can change between versions
+     *
+     * @return the directory, it is not created by this method
+     */
+    public static Path getDefaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".fxutility", "bss", getJavaFxVersion());
+    }
+
+    /**
+     * Compiles a css file to binary css, binary files are returned as they are
+     *
+     * @param cssPath the path to the css file
+     * @return the path to the compiled file, or the original path if it cannot be compiled without breaking relative urls in it
+     * or compiling it failed
+     * @throws IOException if the file could not be read
+     */
+    public URL compile(URL cssPath) throws IOException {
+        if (cssPath == null) throw new NullPointerException("Path cannot be null!");
+        String key = cssPath.toExternalForm();
+        if (key.endsWith(BSS_EXTENSION)) return cssPath;
+
+        URL result = compiled.get(key);
+        if (result != null && !"file".equals(cssPath.getProtocol())) return result;
+
+        byte[] content;
+        try (InputStream inputStream = cssPath.openStream()) {
+            content = inputStream.readAllBytes();
+        }
+
+        File source = toFile(cssPath);
+        // url() values are resolved against the file that gets compiled, a copy of a packed stylesheet would point them to the temp directory
+        if (source == null && new String(content, StandardCharsets.UTF_8).contains("url(")) {
+            compiled.put(key, cssPath);
+            return cssPath;
+        }
+
+        // the source location is part of the name since relative urls in the compiled file point next to it
+        String sourceHash = hash(key.getBytes(StandardCharsets.UTF_8));
+        try {
+            Path directory = resolveDirectory();
+            Path target = directory.resolve(sourceHash + "-" + hash(content) + BSS_EXTENSION);
+            if (!Files.exists(target)) {
+                writeCompiled(directory, source, content, target);
+                deleteOutdated(directory, sourceHash, target);
+            }
+            result = target.toUri().toURL();
+        } catch (IOException e) {
+            // the css file still works, it only has to be parsed
+            compiled.put(key, cssPath);
+            return cssPath;
+        }
+
+        compiled.put(key, result);
+        return result;
+    }
+
+    /**
+     * Gets the directory compiled files are written to, the temporary directory is created on first use
+     */
+    private synchronized Path resolveDirectory() throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+            return directory;
+        }
+        if (tempDirectory == null) {
+            tempDirectory = Files.createTempDirectory("fxutility-bss");
+            tempDirectory.toFile().deleteOnExit();
+        }
+        return tempDirectory;
+    }
+
+    private void writeCompiled(Path directory, File source, byte[] content, Path target) throws IOException {
+        Path temp = Files.createTempFile(directory, "compile", BSS_EXTENSION);
+        Path copy = null;
+        try {
+            if (source == null) {
+                copy = Files.createTempFile(directory, "source", CSS_EXTENSION);
+                Files.write(copy, content);
+                source = copy.toFile();
+            }
+            Stylesheet.convertToBinary(source, temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // registered after the directory so it is deleted before it, files deleted earlier are skipped
+            if (directory.equals(tempDirectory)) target.toFile().deleteOnExit();
+        } finally {
+            Files.deleteIfExists(temp);
+            if (copy != null) Files.deleteIfExists(copy);
+        }
+    }
+
+    /**
+     * Deletes the files compiled from earlier content of a source
+     */
+    private static void deleteOutdated(Path directory, String sourceHash, Path current) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, sourceHash + "-*" + BSS_EXTENSION)) {
+            for (Path path : stream) {
+                if (!path.equals(current)) Files.deleteIfExists(path);
+            }
+        } catch (IOException ignored) {
+            // an outdated file that is still open is deleted the next time the source changes
+        }
+    }
+
+    /**
+     * Compiles a css file on the io executor
+     *
+     * @param cssPath the path to the css file
+     * @return a future completing with the path to the compiled file
+     * @see #compile(URL)
+     */
+    public CompletableFuture<URL> compileAsync(URL cssPath) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return compile(cssPath);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not compile: " + cssPath, e);
+            }
+        }, FileExecutors.io());
+    }
+
+    /**
+     * Compiles a css file and loads it
+     *
+     * @param cssPath the path to the css file
+     * @return the loaded stylesheet, its url points to the compiled file unless the css file had to be used
+     * @throws IOException if the file could not be read
+     */
+    public Stylesheet load(URL cssPath) throws IOException {
+        URL url = compile(cssPath);
+        if (url.toExternalForm().endsWith(BSS_EXTENSION)) {
+            Stylesheet stylesheet;
+            try {
+                stylesheet = Stylesheet.loadBinary(url);
+            } catch (IOException e) {
+                stylesheet = null;
+            }
+            if (stylesheet != null) return stylesheet;
+            // a compiled file that cannot be read is not used, the css file is parsed instead
+            if (url.equals(cssPath)) throw new IOException("Could not load stylesheet: " + cssPath);
+            compiled.put(cssPath.toExternalForm(), cssPath);
+            return new CssParser().parse(cssPath);
+        }
+        return new CssParser().parse(url);
+    }
+
+    /**
+     * Replaces the stylesheets of all scenes, every scene only has its css applied once no matter how many stylesheets are set
+     *
+     * @param scenes      the scenes
+     * @param stylesheets the urls of the stylesheets
+     */
+    public void apply(Collection<Scene> scenes, List<String> stylesheets) {
+        for (Scene scene : scenes) {
+            scene.getStylesheets().setAll(stylesheets);
+        }
+    }
+
+    /**
+     * Replaces some stylesheets of all scenes with others in one change per scene, scenes keep their other stylesheets
+     *
+     * @param scenes the scenes
+     * @param remove the urls of the stylesheets to remove
+     * @param add    the urls of the stylesheets to add
+     */
+    public void swap(Collection<Scene> scenes, Collection<String> remove, List<String> add) {
+        for (Scene scene : scenes) {
+            scene.getStylesheets().setAll(swap(scene.getStylesheets(), remove, add));
+        }
+    }
+
+    /**
+     * Replaces some stylesheets in a list of stylesheets
+     *
+     * @return the new list of stylesheets
+     */
+    static List<String> swap(List<String> stylesheets, Collection<String> remove, List<String> add) {
+        List<String> result = new ArrayList<>(stylesheets.size() + add.size());
+        for (String stylesheet : stylesheets) {
+            if (!remove.contains(stylesheet) && !add.contains(stylesheet)) result.add(stylesheet);
+        }
+        result.addAll(add);
+        return result;
+    }
+
+    /**
+     * Removes all remembered compile results, the compiled files on disk are kept and reused
+     */
+    public void clear() {
+        compiled.clear();
+    }
+
+    /**
+     * @return the directory compiled stylesheets are kept in between starts, or null if they are only kept for this run
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private static String getJavaFxVersion() {
+        String version = System.getProperty("javafx.runtime.version");
+        if (version != null) return version;
+        ModuleDescriptor descriptor = Stylesheet.class.getModule().getDescriptor();
+        return descriptor == null ? "unknown" : descriptor.rawVersion().orElse("unknown");
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) return null;
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] bytes = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder builder = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.wonkglorg.fxutility.manager;
+
+import javafx.scene.Parent;
+
+/**
+ * Applies a {@link ColorPallet} to a scene graph by setting its colors as looked-up colors in the inline style of the root.
+ * Switching themes only changes that one style, the stylesheets of the scene stay the same so no stylesheet has to be loaded or swapped.
+ * Changing the style of the root still makes JavaFX apply css to the whole scene graph below it again on the next pulse.
+ */
+public class ThemeManager {
+
+    private static final String THEME_STYLE_KEY = ThemeManager.class.getName() + ".themeStyle";
+
+    private ThemeManager() {
+    }
+
+    /**
+     * Applies a pallet to a root, the rest of the style of the root is kept after the theme colors
+     *
+     * @param root   the root of the scene graph
+     * @param pallet the pallet to apply
+     */
+    public static void apply(Parent root, ColorPallet pallet) {
+        String themeStyle = pallet.toStyle();
+        String baseStyle = getBaseStyle(root);
+        root.getProperties().put(THEME_STYLE_KEY, themeStyle);
+        root.setStyle(themeStyle + baseStyle);
+    }
+
+    /**
+     * Removes the theme from a root, keeping the rest of its style
+     *
+     * @param root the root of the scene graph
+     */
+    public static void remove(Parent root) {
+        String baseStyle = getBaseStyle(root);
+        if (root.getProperties().remove(THEME_STYLE_KEY) != null) root.setStyle(baseStyle);
+    }
+
+    /**
+     * Gets the style of a root without the theme colors. The style is read each time so changes the application made to the style
+     * since the last theme was applied are kept, if the theme colors were replaced the whole style counts as the base style
+     */
+    private static String getBaseStyle(Parent root) {
+        String style = root.getStyle() == null ? "" : root.getStyle();
+        Object themeStyle = root.getProperties().get(THEME_STYLE_KEY);
+        if (themeStyle != null && style.startsWith((String) themeStyle)) return style.substring(((String) themeStyle).length());
+        return style;
+    }
+}
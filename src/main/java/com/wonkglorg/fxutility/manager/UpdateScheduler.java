@@ -0,0 +1,110 @@
+package com.wonkglorg.fxutility.manager;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules {@link ManagedController#update()} calls on the JavaFX Application Thread. Controllers can request an update from any thread,
+ * the updates run in one pass per pulse right before the scene is rendered, so each controller is updated at most once per frame.
+ */
+public class UpdateScheduler {
+
+    private static final UpdateScheduler instance = new UpdateScheduler();
+
+    private final Set<ManagedController> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong passes = new AtomicLong();
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            runPass();
+        }
+    };
+
+    /**
+     * @return the scheduler used by {@link ManagedController#requestUpdate()}
+     */
+    public static UpdateScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Marks a controller as dirty, it gets updated in the next pass. Can be called from any thread
+     *
+     * @param controller the controller to update
+     */
+    public void requestUpdate(ManagedController controller) {
+        requested.incrementAndGet();
+        pending.add(controller);
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(timer::start);
+        }
+    }
+
+    /**
+     * Updates all dirty controllers, requests made while the pass is running are handled in the next pulse
+     */
+    private void runPass() {
+        if (pending.isEmpty()) {
+            scheduled.set(false);
+            // requests made right before the flag was cleared did not start the timer, keep running for them
+            if (pending.isEmpty() || !scheduled.compareAndSet(false, true)) timer.stop();
+            return;
+        }
+        passes.incrementAndGet();
+        // taken as a copy so controllers requesting another update while updating wait for the next pulse
+        List<ManagedController> batch = new ArrayList<>(pending);
+        pending.removeAll(batch);
+        RuntimeException failure = null;
+        for (ManagedController controller : batch) {
+            executed.incrementAndGet();
+            try {
+                controller.update();
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * @return the amount of update requests since the last reset
+     */
+    public long getRequestedCount() {
+        return requested.get();
+    }
+
+    /**
+     * @return the amount of executed updates since the last reset
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * @return the amount of update passes since the last reset
+     */
+    public long getPassCount() {
+        return passes.get();
+    }
+
+    /**
+     * Resets all counters
+     */
+    public void resetMetrics() {
+        requested.set(0);
+        executed.set(0);
+        passes.set(0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.wonkglorg.fxutility.manager.containers.dragpane;
+
+/**
+ * A lightweight description of a node on a {@link VirtualizedLayer}, the node itself is only created while the item is near the visible area.
+ * The position is applied as the translation of the node, so the node should be drawn with its local origin at the top left corner.
+ */
+public class CanvasItem {
+
+    private final Object type;
+    private double x;
+    private double y;
+    private double width;
+    private double height;
+    private Object data;
+
+    /**
+     * @param type   the type of node this item needs, nodes are only reused for items of the same type
+     * @param x      the x position in canvas coordinates
+     * @param y      the y position in canvas coordinates
+     * @param width  the width in canvas coordinates
+     * @param height the height in canvas coordinates
+     */
+    public CanvasItem(Object type, double x, double y, double width, double height) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public Object getType() {
+        return type;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public void setX(double x) {
+        this.x = x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public void setY(double y) {
+        this.y = y;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public void setWidth(double width) {
+        this.width = width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public void setHeight(double height) {
+        this.height = height;
+    }
+
+    /**
+     * @return custom data attached to this item
+     */
+    public Object getData() {
+        return data;
+    }
+
+    public void setData(Object data) {
+        this.data = data;
+    }
+
+    boolean intersects(double minX, double minY, double maxX, double maxY) {
+        return x + width >= minX && x <= maxX && y + height >= minY && y <= maxY;
+    }
+}
@@ -24,18 +24,20 @@ public class Example {
         Circle circle1 = new Circle(300, 300, 50);
         circle1.setStroke(Color.ORANGE);
         circle1.setFill(Color.ORANGE.deriveColor(1, 1, 1, 1));
-        //always add the corresponding 2 events to and the node gesture consumer to the node
+        //always add the corresponding 3 events to and the node gesture consumer to the node
         circle1.addEventFilter(MouseEvent.MOUSE_PRESSED, nodeGestures.getOnMousePressedEventHandler());
         circle1.addEventFilter(MouseEvent.MOUSE_DRAGGED, nodeGestures.getOnMouseDraggedEventHandler());
+        circle1.addEventFilter(MouseEvent.MOUSE_RELEASED, nodeGestures.getOnMouseReleasedEventHandler());
 
         Rectangle rect1 = new Rectangle(100, 100);
         rect1.setTranslateX(450);
         rect1.setTranslateY(450);
         rect1.setStroke(Color.BLUE);
         rect1.setFill(Color.BLUE.deriveColor(1, 1, 1, 1));
-        //always add the corresponding 2 events to and the node gesture consumer to the node
+        //always add the corresponding 3 events to and the node gesture consumer to the node
         rect1.addEventFilter(MouseEvent.MOUSE_PRESSED, nodeGestures.getOnMousePressedEventHandler());
         rect1.addEventFilter(MouseEvent.MOUSE_DRAGGED, nodeGestures.getOnMouseDraggedEventHandler());
+        rect1.addEventFilter(MouseEvent.MOUSE_RELEASED, nodeGestures.getOnMouseReleasedEventHandler());
 
         canvas.getChildren().addAll(circle1, rect1);
 
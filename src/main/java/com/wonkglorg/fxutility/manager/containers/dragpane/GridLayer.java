@@ -0,0 +1,132 @@
+package com.wonkglorg.fxutility.manager.containers.dragpane;
+
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+import java.util.List;
+
+/**
+ * A grid drawn behind a {@link PannableCanvas}, it is only as large as the viewport and redraws the visible part whenever the canvas is panned or zoomed.
+ * Lines are drawn at screen resolution, if they get too close together when zooming out every second line is skipped.
+ */
+public class GridLayer extends Canvas {
+
+    private static final double MIN_PIXEL_SPACING = 8;
+
+    private final PannableCanvas canvas;
+    private double spacing = 50;
+    private Paint stroke = Color.GRAY;
+    private final Runnable viewportListener = this::requestRedraw;
+    private boolean redrawPending;
+
+    GridLayer(PannableCanvas canvas) {
+        this.canvas = canvas;
+
+        // don't catch mouse events
+        setMouseTransparent(true);
+        setManaged(false);
+
+        canvas.addViewportListener(viewportListener);
+        parentProperty().addListener(observable -> requestRedraw());
+    }
+
+    /**
+     * Adds the grid to the parent of the canvas, right behind it
+     */
+    void install() {
+        List<Node> children = canvas.getParentChildren();
+        children.remove(this);
+        children.add(children.indexOf(canvas), this);
+    }
+
+    /**
+     * Removes the grid
+     */
+    public void remove() {
+        canvas.removeViewportListener(viewportListener);
+        if (getParent() != null) canvas.getParentChildren().remove(this);
+    }
+
+    /**
+     * Schedules a redraw, multiple requests before the next redraw are merged
+     */
+    public void requestRedraw() {
+        if (redrawPending) return;
+        redrawPending = true;
+        Platform.runLater(this::redraw);
+    }
+
+    private void redraw() {
+        redrawPending = false;
+        Parent parent = getParent();
+        Bounds viewportBounds = canvas.getViewportBoundsInScene();
+        if (parent == null || viewportBounds == null) return;
+
+        Bounds bounds = parent.sceneToLocal(viewportBounds);
+        Point2D origin = parent.sceneToLocal(canvas.localToScene(0, 0));
+
+        setLayoutX(bounds.getMinX());
+        setLayoutY(bounds.getMinY());
+        setWidth(Math.ceil(bounds.getWidth()));
+        setHeight(Math.ceil(bounds.getHeight()));
+
+        double w = getWidth();
+        double h = getHeight();
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, w, h);
+
+        double step = spacing * canvas.getScale();
+        if (step <= 0 || Double.isNaN(step)) return;
+        while (step < MIN_PIXEL_SPACING) {
+            step *= 2;
+        }
+
+        gc.setStroke(stroke);
+        gc.setLineWidth(1);
+
+        // draw grid lines, offset so they line up with the canvas origin
+        for (double x = floorMod(origin.getX() - bounds.getMinX(), step); x < w; x += step) {
+            double snapped = Math.floor(x) + 0.5;
+            gc.strokeLine(snapped, 0, snapped, h);
+        }
+        for (double y = floorMod(origin.getY() - bounds.getMinY(), step); y < h; y += step) {
+            double snapped = Math.floor(y) + 0.5;
+            gc.strokeLine(0, snapped, w, snapped);
+        }
+    }
+
+    private static double floorMod(double value, double mod) {
+        return value - Math.floor(value / mod) * mod;
+    }
+
+    public double getSpacing() {
+        return spacing;
+    }
+
+    /**
+     * Sets the distance between grid lines in canvas coordinates
+     *
+     * @param spacing the distance between lines
+     */
+    public void setSpacing(double spacing) {
+        if (spacing <= 0) throw new IllegalArgumentException("Spacing must be positive");
+        this.spacing = spacing;
+        requestRedraw();
+    }
+
+    public Paint getStroke() {
+        return stroke;
+    }
+
+    public void setStroke(Paint stroke) {
+        this.stroke = stroke;
+        requestRedraw();
+    }
+}
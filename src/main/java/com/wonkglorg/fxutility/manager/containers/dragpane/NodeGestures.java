@@ -1,11 +1,23 @@
 package com.wonkglorg.fxutility.manager.containers.dragpane;
 
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableSet;
 import javafx.event.EventHandler;
+import javafx.geometry.Bounds;
 import javafx.scene.Node;
 import javafx.scene.input.MouseEvent;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
 /**
  * Listeners for making the nodes draggable via left mouse button. Considers if parent is zoomed.
+ * <p>
+ * Dragging a selected node moves the whole selection, the translations of the selected nodes are updated at most once per frame.
+ * Shortcut (ctrl or cmd) clicking a node toggles its selection, a click that deselects the node does not drag it.
+ * <p>
+ * The released handler is optional, the frame timer of a group drag only runs while there are moves left to apply.
  */
 public class NodeGestures {
 
@@ -13,6 +25,25 @@ public class NodeGestures {
 
     PannableCanvas canvas;
 
+    private final ObservableSet<Node> selection = FXCollections.observableSet(new LinkedHashSet<>());
+
+    // group drag state, kept in arrays that are reused between drags
+    private Node[] groupNodes = new Node[0];
+    private double[] groupAnchorX = new double[0];
+    private double[] groupAnchorY = new double[0];
+    private int groupSize;
+    private double groupDeltaX;
+    private double groupDeltaY;
+    private boolean groupDirty;
+    private boolean dragging;
+
+    private final AnimationTimer groupMover = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyGroupMove();
+        }
+    };
+
     public NodeGestures(PannableCanvas canvas) {
         this.canvas = canvas;
 
@@ -26,8 +57,35 @@ public class NodeGestures {
         return onMouseDraggedEventHandler;
     }
 
+    public EventHandler<MouseEvent> getOnMouseReleasedEventHandler() {
+        return onMouseReleasedEventHandler;
+    }
+
+    /**
+     * @return the selected nodes, dragging one of them moves all of them
+     */
+    public ObservableSet<Node> getSelection() {
+        return selection;
+    }
+
+    /**
+     * Selects all children of the canvas intersecting an area
+     *
+     * @param bounds the area in canvas coordinates
+     */
+    public void selectIn(Bounds bounds) {
+        selection.addAll(canvas.nodesIn(bounds));
+    }
+
+    public void clearSelection() {
+        selection.clear();
+    }
+
     private final EventHandler<MouseEvent> onMousePressedEventHandler = event -> {
 
+        finishGroupDrag();
+        dragging = false;
+
         // left mouse button => dragging
         if (!event.isPrimaryButtonDown()) {
             if (event.isMiddleButtonDown()) {
@@ -42,6 +100,17 @@ public class NodeGestures {
 
         Node node = (Node) event.getSource();
 
+        if (event.isShortcutDown()) {
+            // a deselected node stays where it is
+            if (selection.remove(node)) return;
+            selection.add(node);
+        }
+
+        dragging = true;
+        if (selection.size() > 1 && selection.contains(node)) {
+            startGroupDrag();
+            return;
+        }
 
         nodeDragContext.translateAnchorX = node.getTranslateX();
         nodeDragContext.translateAnchorY = node.getTranslateY();
@@ -53,6 +122,7 @@ public class NodeGestures {
 
             // left mouse button => dragging
             if (!event.isPrimaryButtonDown()) {
+                finishGroupDrag();
                 if (event.isMiddleButtonDown()) {
                     event.consume();
                     return;
@@ -60,9 +130,22 @@ public class NodeGestures {
                 return;
             }
 
+            if (!dragging) return;
 
             double scale = canvas.getScale();
 
+            if (groupSize > 0) {
+                // only remember the offset, the nodes are moved once per frame
+                groupDeltaX = (event.getSceneX() - nodeDragContext.mouseAnchorX) / scale;
+                groupDeltaY = (event.getSceneY() - nodeDragContext.mouseAnchorY) / scale;
+                if (!groupDirty) {
+                    groupDirty = true;
+                    groupMover.start();
+                }
+                event.consume();
+                return;
+            }
+
             Node node = (Node) event.getSource();
 
             node.setTranslateX(nodeDragContext.translateAnchorX + ((event.getSceneX() - nodeDragContext.mouseAnchorX) / scale));
@@ -72,4 +155,50 @@ public class NodeGestures {
 
         }
     };
+
+    private final EventHandler<MouseEvent> onMouseReleasedEventHandler = event -> {
+        finishGroupDrag();
+        dragging = false;
+        canvas.invalidateSnapshots();
+    };
+
+    private void startGroupDrag() {
+        int size = selection.size();
+        if (groupNodes.length < size) {
+            groupNodes = new Node[size];
+            groupAnchorX = new double[size];
+            groupAnchorY = new double[size];
+        }
+
+        groupSize = 0;
+        for (Node selected : selection) {
+            groupNodes[groupSize] = selected;
+            groupAnchorX[groupSize] = selected.getTranslateX();
+            groupAnchorY[groupSize] = selected.getTranslateY();
+            groupSize++;
+        }
+        groupDeltaX = 0;
+        groupDeltaY = 0;
+        groupDirty = false;
+    }
+
+    /**
+     * Moves the group to the latest offset, the timer is started again by the next drag event
+     */
+    private void applyGroupMove() {
+        groupMover.stop();
+        if (!groupDirty) return;
+        groupDirty = false;
+        for (int i = 0; i < groupSize; i++) {
+            groupNodes[i].setTranslateX(groupAnchorX[i] + groupDeltaX);
+            groupNodes[i].setTranslateY(groupAnchorY[i] + groupDeltaY);
+        }
+    }
+
+    private void finishGroupDrag() {
+        if (groupSize == 0) return;
+        applyGroupMove();
+        Arrays.fill(groupNodes, 0, groupSize, null);
+        groupSize = 0;
+    }
 }
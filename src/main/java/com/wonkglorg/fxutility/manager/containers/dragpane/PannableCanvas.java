@@ -1,12 +1,26 @@
 package com.wonkglorg.fxutility.manager.containers.dragpane;
 
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
+import javafx.scene.layout.Region;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The canvas that holds all the nodes, can be panned and zoomed
@@ -15,6 +29,17 @@ public class PannableCanvas extends Pane {
 
     DoubleProperty myScale = new SimpleDoubleProperty(1.0);
 
+    private final ObjectProperty<Region> viewport = new SimpleObjectProperty<>(this, "viewport");
+    private final List<Runnable> viewportListeners = new ArrayList<>();
+    private final InvalidationListener viewportInvalidated = observable -> fireViewportChanged();
+    private SpatialIndex<Node> spatialIndex;
+    private SnapshotLayer snapshotLayer;
+    private long snapshotBudget = 64L * 1024 * 1024;
+    private final ChangeListener<Bounds> childBoundsListener = (observable, oldBounds, newBounds) -> {
+        Node child = (Node) ((ReadOnlyProperty<?>) observable).getBean();
+        spatialIndex.insert(child, newBounds);
+    };
+
     public PannableCanvas() {
 
         setPrefSize(600, 600);
@@ -30,39 +55,259 @@ public class PannableCanvas extends Pane {
             System.out.println("canvas bounds: " + getBoundsInParent());
         });
 
+        // track everything that changes which part of the canvas is visible
+        myScale.addListener(viewportInvalidated);
+        translateXProperty().addListener(viewportInvalidated);
+        translateYProperty().addListener(viewportInvalidated);
+        layoutXProperty().addListener(viewportInvalidated);
+        layoutYProperty().addListener(viewportInvalidated);
+        layoutBoundsProperty().addListener(viewportInvalidated);
+        sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (oldScene != null) {
+                oldScene.widthProperty().removeListener(viewportInvalidated);
+                oldScene.heightProperty().removeListener(viewportInvalidated);
+            }
+            if (newScene != null) {
+                newScene.widthProperty().addListener(viewportInvalidated);
+                newScene.heightProperty().addListener(viewportInvalidated);
+            }
+            fireViewportChanged();
+        });
+        getChildren().addListener((ListChangeListener<Node>) change -> {
+            if (snapshotLayer == null) return;
+            while (change.next()) {
+                if (!isSnapshotTiles(change.getRemoved()) || !isSnapshotTiles(change.getAddedSubList())) {
+                    snapshotLayer.invalidate();
+                    return;
+                }
+            }
+        });
+        viewport.addListener((observable, oldViewport, newViewport) -> {
+            if (oldViewport != null) oldViewport.layoutBoundsProperty().removeListener(viewportInvalidated);
+            if (newViewport != null) newViewport.layoutBoundsProperty().addListener(viewportInvalidated);
+            fireViewportChanged();
+        });
+    }
+
+    /**
+     * Add a viewport aware grid behind the canvas, the grid only draws the visible area and is redrawn when the canvas is panned or zoomed.
+     * The canvas has to be inside a {@link Pane} or {@link Group}, if it has no parent yet the grid is added once it gets one
+     *
+     * @return the grid
+     */
+    public GridLayer addGrid() {
+        GridLayer grid = new GridLayer(this);
+        if (getParent() != null) {
+            grid.install();
+            return grid;
+        }
+
+        parentProperty().addListener(new InvalidationListener() {
+            @Override
+            public void invalidated(Observable observable) {
+                if (getParent() == null) return;
+                parentProperty().removeListener(this);
+                grid.install();
+            }
+        });
+        return grid;
+    }
+
+    /**
+     * Adds a listener that gets called whenever the visible part of the canvas might have changed, for example when it is panned, zoomed or the viewport is resized
+     *
+     * @param listener the listener
+     */
+    public void addViewportListener(Runnable listener) {
+        viewportListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addViewportListener(Runnable)}
+     *
+     * @param listener the listener
+     */
+    public void removeViewportListener(Runnable listener) {
+        viewportListeners.remove(listener);
+    }
+
+    private void fireViewportChanged() {
+        for (int i = 0; i < viewportListeners.size(); i++) {
+            viewportListeners.get(i).run();
+        }
     }
 
     /**
-     * Add a grid to the canvas, send it to back
+     * Gets the area the canvas is shown in, in scene coordinates
+     *
+     * @return the viewport bounds or null if the canvas is not part of a scene
      */
-    public void addGrid() {
+    public Bounds getViewportBoundsInScene() {
+        Region region = viewport.get();
+        if (region != null) {
+            return region.localToScene(region.getLayoutBounds());
+        }
+        Scene scene = getScene();
+        if (scene == null) return null;
+        return new BoundingBox(0, 0, scene.getWidth(), scene.getHeight());
+    }
 
-        double w = getBoundsInLocal().getWidth();
-        double h = getBoundsInLocal().getHeight();
+    /**
+     * Gets the currently visible area in canvas coordinates
+     *
+     * @return the visible bounds or null if the canvas is not part of a scene
+     */
+    public Bounds getVisibleBounds() {
+        Bounds bounds = getViewportBoundsInScene();
+        return bounds == null ? null : sceneToLocal(bounds);
+    }
 
-        // add grid
-        Canvas grid = new Canvas(w, h);
+    /**
+     * The region the canvas is shown in, if none is set the whole scene is used
+     */
+    public ObjectProperty<Region> viewportProperty() {
+        return viewport;
+    }
 
-        // don't catch mouse events
-        grid.setMouseTransparent(true);
+    public Region getViewport() {
+        return viewport.get();
+    }
 
-        GraphicsContext gc = grid.getGraphicsContext2D();
+    public void setViewport(Region viewport) {
+        this.viewport.set(viewport);
+    }
 
-        gc.setStroke(Color.GRAY);
-        gc.setLineWidth(1);
+    /**
+     * Gets the nodes at a point
+     *
+     * @param x the x coordinate in canvas coordinates
+     * @param y the y coordinate in canvas coordinates
+     * @return all children whose bounds contain the point
+     */
+    public List<Node> nodesAt(double x, double y) {
+        return getSpatialIndex().query(x, y);
+    }
 
-        // draw grid lines
-        double offset = 50;
-        for (double i = offset; i < w; i += offset) {
-            // vertical
-            gc.strokeLine(i, 0, i, h);
-            // horizontal
-            gc.strokeLine(0, i, w, i);
+    /**
+     * Gets the nodes in an area
+     *
+     * @param bounds the area in canvas coordinates
+     * @return all children whose bounds intersect the area
+     */
+    public List<Node> nodesIn(Bounds bounds) {
+        return getSpatialIndex().query(bounds);
+    }
+
+    /**
+     * Gets the node closest to a point
+     *
+     * @param x the x coordinate in canvas coordinates
+     * @param y the y coordinate in canvas coordinates
+     * @return the child with the closest bounds or null if the canvas has no children
+     */
+    public Node nearestNode(double x, double y) {
+        return getSpatialIndex().nearest(x, y);
+    }
+
+    /**
+     * Gets the spatial index of the children, it is created on first use and kept up to date as children are added, removed or moved
+     *
+     * @return the spatial index
+     */
+    public SpatialIndex<Node> getSpatialIndex() {
+        if (spatialIndex != null) return spatialIndex;
+
+        spatialIndex = new SpatialIndex<>();
+        for (Node child : getChildren()) {
+            trackChild(child);
         }
+        getChildren().addListener((ListChangeListener<Node>) change -> {
+            while (change.next()) {
+                for (Node removed : change.getRemoved()) {
+                    removed.boundsInParentProperty().removeListener(childBoundsListener);
+                    spatialIndex.remove(removed);
+                }
+                for (Node added : change.getAddedSubList()) {
+                    trackChild(added);
+                }
+            }
+        });
+        return spatialIndex;
+    }
 
-        getChildren().add(grid);
+    private void trackChild(Node child) {
+        if (child.getProperties().containsKey(SnapshotLayer.TILE_GROUP_KEY)) return;
+        //remove first in case the child was only moved within the list
+        child.boundsInParentProperty().removeListener(childBoundsListener);
+        child.boundsInParentProperty().addListener(childBoundsListener);
+        spatialIndex.insert(child, child.getBoundsInParent());
+    }
 
-        grid.toBack();
+    /**
+     * Enables showing cached bitmap tiles of the children while the canvas is panned or zoomed with {@link SceneGestures},
+     * the live children are shown again once the gesture stops
+     *
+     * @param snapshotCaching true to enable snapshot caching
+     */
+    public void setSnapshotCaching(boolean snapshotCaching) {
+        if (snapshotCaching == isSnapshotCaching()) return;
+        if (snapshotCaching) {
+            snapshotLayer = new SnapshotLayer(this, snapshotBudget);
+        } else {
+            snapshotLayer.end();
+            snapshotLayer = null;
+        }
+    }
+
+    public boolean isSnapshotCaching() {
+        return snapshotLayer != null;
+    }
+
+    /**
+     * Sets how much memory the cached tiles may use, the least recently used tiles are removed first
+     *
+     * @param bytes the memory budget in bytes
+     */
+    public void setSnapshotMemoryBudget(long bytes) {
+        snapshotBudget = bytes;
+        if (snapshotLayer != null) snapshotLayer.getCache().setBudget(bytes);
+    }
+
+    public long getSnapshotMemoryBudget() {
+        return snapshotBudget;
+    }
+
+    /**
+     * Removes all cached tiles, call this when the content of the canvas changed without adding or removing children
+     */
+    public void invalidateSnapshots() {
+        if (snapshotLayer != null) snapshotLayer.invalidate();
+    }
+
+    /**
+     * @return true while cached tiles are shown instead of the children
+     */
+    public boolean isSnapshotActive() {
+        return snapshotLayer != null && snapshotLayer.isActive();
+    }
+
+    void gestureStarted() {
+        if (snapshotLayer != null) snapshotLayer.begin();
+    }
+
+    void gestureFinished() {
+        if (snapshotLayer == null) return;
+        boolean shown = snapshotLayer.isActive();
+        snapshotLayer.end();
+        // layers skipped updates while the tiles were shown
+        if (shown) fireViewportChanged();
+    }
+
+    private static boolean isSnapshotTiles(List<? extends Node> nodes) {
+        for (Node node : nodes) {
+            if (!node.getProperties().containsKey(SnapshotLayer.TILE_GROUP_KEY)) return false;
+        }
+        return true;
     }
 
     public double getScale() {
@@ -89,4 +334,14 @@ public class PannableCanvas extends Pane {
         setTranslateY(getTranslateY() - y);
     }
 
+    /**
+     * Gets the children list of the parent of the canvas so layers can be placed next to it
+     */
+    List<Node> getParentChildren() {
+        Parent parent = getParent();
+        if (parent instanceof Pane pane) return pane.getChildren();
+        if (parent instanceof Group group) return group.getChildren();
+        throw new IllegalStateException("The canvas has to be inside a Pane or Group");
+    }
+
 }
@@ -1,21 +1,47 @@
 package com.wonkglorg.fxutility.manager.containers.dragpane;
 
+import javafx.animation.AnimationTimer;
 import javafx.event.EventHandler;
+import javafx.geometry.Bounds;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
 
 /**
- * Listeners for making the scene's canvas draggable and zoomable
+ * Listeners for making the scene's canvas draggable and zoomable.
+ * <p>
+ * Input is only collected by the event handlers and applied to the canvas once per frame, so input devices sending many events per frame
+ * only cause one update. With smooth zoom enabled the scale eases towards the target over several frames.
  */
 public class SceneGestures {
 
     private static final double MAX_SCALE = 10.0d;
     private static final double MIN_SCALE = .1d;
+    private static final long GESTURE_IDLE_NANOS = 150_000_000L;
 
     private final DragContext sceneDragContext = new DragContext();
 
     PannableCanvas canvas;
 
+    // pending input, applied on the next frame
+    private boolean panPending;
+    private double panTargetX;
+    private double panTargetY;
+    private double targetScale = Double.NaN;
+    private double pivotSceneX;
+    private double pivotSceneY;
+
+    private boolean smoothZoom;
+    private double zoomSmoothing = 0.25;
+    private boolean running;
+    private long lastInput;
+
+    private final AnimationTimer stepper = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            step(now);
+        }
+    };
+
     public SceneGestures(PannableCanvas canvas) {
         this.canvas = canvas;
     }
@@ -57,8 +83,10 @@ public class SceneGestures {
             if (!event.isSecondaryButtonDown())
                 return;
 
-            canvas.setTranslateX(sceneDragContext.translateAnchorX + event.getSceneX() - sceneDragContext.mouseAnchorX);
-            canvas.setTranslateY(sceneDragContext.translateAnchorY + event.getSceneY() - sceneDragContext.mouseAnchorY);
+            panTargetX = sceneDragContext.translateAnchorX + event.getSceneX() - sceneDragContext.mouseAnchorX;
+            panTargetY = sceneDragContext.translateAnchorY + event.getSceneY() - sceneDragContext.mouseAnchorY;
+            panPending = true;
+            requestStep();
 
             event.consume();
         }
@@ -74,32 +102,104 @@ public class SceneGestures {
 
             double delta = 1.2;
 
-            double scale = canvas.getScale(); // currently we only use Y, same value is used for X
-            double oldScale = scale;
+            // scroll events arriving before the next frame keep zooming from the pending target
+            double scale = Double.isNaN(targetScale) ? canvas.getScale() : targetScale; // currently we only use Y, same value is used for X
 
             if (event.getDeltaY() < 0)
                 scale /= delta;
             else
                 scale *= delta;
 
-            scale = clamp(scale, MIN_SCALE, MAX_SCALE);
+            targetScale = clamp(scale, MIN_SCALE, MAX_SCALE);
+            pivotSceneX = event.getSceneX();
+            pivotSceneY = event.getSceneY();
+            requestStep();
+
+            event.consume();
+
+        }
+
+    };
+
+
+    private void requestStep() {
+        lastInput = System.nanoTime();
+        if (running) return;
+        running = true;
+        canvas.gestureStarted();
+        stepper.start();
+    }
+
+    /**
+     * Applies the pending input to the canvas, runs once per frame while there is input left
+     *
+     * @param now the timestamp of the current frame
+     */
+    private void step(long now) {
+        if (panPending) {
+            panPending = false;
+            canvas.setTranslateX(panTargetX);
+            canvas.setTranslateY(panTargetY);
+        }
+
+        if (!Double.isNaN(targetScale)) {
+            double oldScale = canvas.getScale();
+            double scale = targetScale;
+            if (smoothZoom) {
+                // ease towards the target in log space so zooming in and out feel the same
+                scale = oldScale * Math.pow(targetScale / oldScale, zoomSmoothing);
+                if (Math.abs(scale / targetScale - 1) < 0.001) scale = targetScale;
+            }
 
             double f = (scale / oldScale) - 1;
 
-            double dx = (event.getSceneX() - (canvas.getBoundsInParent().getWidth() / 2 + canvas.getBoundsInParent().getMinX()));
-            double dy = (event.getSceneY() - (canvas.getBoundsInParent().getHeight() / 2 + canvas.getBoundsInParent().getMinY()));
+            Bounds bounds = canvas.getBoundsInParent();
+            double dx = (pivotSceneX - (bounds.getWidth() / 2 + bounds.getMinX()));
+            double dy = (pivotSceneY - (bounds.getHeight() / 2 + bounds.getMinY()));
 
             canvas.setScale(scale);
 
             // note: pivot value must be untransformed, i. e. without scaling
             canvas.setPivot(f * dx, f * dy);
 
-            event.consume();
+            if (scale == targetScale) targetScale = Double.NaN;
+        }
 
+        if (!panPending && Double.isNaN(targetScale)) {
+            // with snapshot caching the gesture only ends once the input stopped for a while, so the tiles are not swapped every frame
+            if (canvas.isSnapshotCaching() && now - lastInput < GESTURE_IDLE_NANOS) return;
+            running = false;
+            stepper.stop();
+            canvas.gestureFinished();
         }
+    }
 
-    };
+    public boolean isSmoothZoom() {
+        return smoothZoom;
+    }
 
+    /**
+     * Enables smooth zooming, the scale eases towards the scrolled scale over several frames instead of jumping to it
+     *
+     * @param smoothZoom true to enable smooth zooming
+     */
+    public void setSmoothZoom(boolean smoothZoom) {
+        this.smoothZoom = smoothZoom;
+    }
+
+    public double getZoomSmoothing() {
+        return zoomSmoothing;
+    }
+
+    /**
+     * Sets how much of the remaining zoom is applied each frame when smooth zoom is enabled
+     *
+     * @param zoomSmoothing a value between 0 (exclusive) and 1, where 1 disables easing
+     */
+    public void setZoomSmoothing(double zoomSmoothing) {
+        if (zoomSmoothing <= 0 || zoomSmoothing > 1) throw new IllegalArgumentException("Smoothing must be in (0, 1]");
+        this.zoomSmoothing = zoomSmoothing;
+    }
 
     public static double clamp(double value, double min, double max) {
 
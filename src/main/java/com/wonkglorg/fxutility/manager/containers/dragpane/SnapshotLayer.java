@@ -0,0 +1,231 @@
+package com.wonkglorg.fxutility.manager.containers.dragpane;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.NonInvertibleTransformException;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Transform;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Replaces the children of a {@link PannableCanvas} with bitmap tiles while it is panned or zoomed. Tiles are rendered at the power of two
+ * zoom level closest to the current scale and kept in a {@link TileCache} so later gestures at the same level can reuse them.
+ * <p>
+ * Missing tiles are rendered over several frames, the visible ones first, while the live children are still shown. The children are only
+ * swapped for the tiles once all of them are ready.
+ */
+final class SnapshotLayer {
+
+    static final String TILE_GROUP_KEY = "pannablecanvas.snapshot.tiles";
+    private static final int TILE_SIZE = 256;
+    private static final double VISIBLE_MARGIN = 0.5;
+    private static final long FRAME_BUDGET_NANOS = 4_000_000;
+
+    private final PannableCanvas canvas;
+    private final TileCache cache;
+    private final Group tileGroup = new Group();
+    private final List<Node> hidden = new ArrayList<>();
+    private final List<Node> views = new ArrayList<>();
+    private final Deque<TileCache.TileKey> pending = new ArrayDeque<>();
+    private Bounds covered;
+    private double tileLocalSize;
+    private boolean rendering;
+    private boolean active;
+
+    private final AnimationTimer renderer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            renderPending();
+        }
+    };
+
+    SnapshotLayer(PannableCanvas canvas, long budget) {
+        this.canvas = canvas;
+        this.cache = new TileCache(budget);
+        tileGroup.setMouseTransparent(true);
+        tileGroup.setManaged(false);
+        tileGroup.getProperties().put(TILE_GROUP_KEY, Boolean.TRUE);
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    TileCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Starts covering the area around the visible area with tiles, cached tiles are used right away and missing ones are rendered over the next frames
+     */
+    void begin() {
+        if (active || rendering || canvas.getScene() == null) return;
+        Bounds visible = canvas.getVisibleBounds();
+        if (visible == null) return;
+
+        // only cover the area that has content so the bounds of the canvas do not change
+        Bounds content = canvas.getBoundsInLocal();
+        double marginX = visible.getWidth() * VISIBLE_MARGIN;
+        double marginY = visible.getHeight() * VISIBLE_MARGIN;
+        double minX = Math.max(visible.getMinX() - marginX, content.getMinX());
+        double minY = Math.max(visible.getMinY() - marginY, content.getMinY());
+        double maxX = Math.min(visible.getMaxX() + marginX, content.getMaxX());
+        double maxY = Math.min(visible.getMaxY() + marginY, content.getMaxY());
+        if (minX >= maxX || minY >= maxY) return;
+
+        int levelExponent = (int) Math.round(Math.log(canvas.getScale()) / Math.log(2));
+        tileLocalSize = TILE_SIZE / Math.pow(2, levelExponent);
+        covered = new BoundingBox(minX, minY, maxX - minX, maxY - minY);
+
+        List<TileCache.TileKey> keys = new ArrayList<>();
+        for (int tileX = (int) Math.floor(minX / tileLocalSize); tileX * tileLocalSize < maxX; tileX++) {
+            for (int tileY = (int) Math.floor(minY / tileLocalSize); tileY * tileLocalSize < maxY; tileY++) {
+                TileCache.TileKey key = new TileCache.TileKey(levelExponent, tileX, tileY);
+                Image image = cache.get(key);
+                if (image != null) views.add(createTileView(image, key));
+                else keys.add(key);
+            }
+        }
+
+        if (keys.isEmpty()) {
+            show();
+            return;
+        }
+        // visible tiles first, closest to the center of the viewport first
+        double centerX = visible.getCenterX() / tileLocalSize - 0.5;
+        double centerY = visible.getCenterY() / tileLocalSize - 0.5;
+        keys.sort(Comparator.<TileCache.TileKey>comparingInt(key -> isVisible(key, visible) ? 0 : 1)
+                .thenComparingDouble(key -> Math.hypot(key.getX() - centerX, key.getY() - centerY)));
+        pending.addAll(keys);
+        rendering = true;
+        renderer.start();
+    }
+
+    /**
+     * Renders missing tiles until the frame budget is used up, shows the tiles once all of them are rendered
+     */
+    private void renderPending() {
+        Transform toLocal = createTileTransform(pending.peek().getLevel());
+        if (toLocal == null) return;
+        long deadline = System.nanoTime() + FRAME_BUDGET_NANOS;
+        do {
+            TileCache.TileKey key = pending.poll();
+            Image image = renderTile(toLocal, key);
+            cache.put(key, image);
+            views.add(createTileView(image, key));
+        } while (!pending.isEmpty() && System.nanoTime() < deadline);
+
+        if (!pending.isEmpty()) return;
+        stopRendering();
+        show();
+    }
+
+    /**
+     * Hides the live children in the covered area behind the tiles
+     */
+    private void show() {
+        for (Node child : canvas.nodesIn(covered)) {
+            if (child.isVisible()) {
+                child.setVisible(false);
+                hidden.add(child);
+            }
+        }
+        tileGroup.getChildren().setAll(views);
+        views.clear();
+        canvas.getChildren().add(tileGroup);
+        active = true;
+    }
+
+    /**
+     * Removes the tiles and shows the live children again, tiles that are still being rendered are dropped
+     */
+    void end() {
+        stopRendering();
+        if (!active) return;
+        active = false;
+        canvas.getChildren().remove(tileGroup);
+        tileGroup.getChildren().clear();
+        for (Node node : hidden) {
+            node.setVisible(true);
+        }
+        hidden.clear();
+    }
+
+    /**
+     * Clears the cached tiles, tiles that are still being rendered are dropped as they could show the old content
+     */
+    void invalidate() {
+        cache.clear();
+        stopRendering();
+    }
+
+    private void stopRendering() {
+        if (!rendering) return;
+        rendering = false;
+        renderer.stop();
+        pending.clear();
+        views.clear();
+    }
+
+    private boolean isVisible(TileCache.TileKey key, Bounds visible) {
+        return visible.intersects(key.getX() * tileLocalSize, key.getY() * tileLocalSize, tileLocalSize, tileLocalSize);
+    }
+
+    /**
+     * Creates the transform tiles of a level are rendered with, the canvas may have moved since the last frame
+     *
+     * @return the transform or null if the canvas transform cannot be inverted
+     */
+    private Transform createTileTransform(int levelExponent) {
+        double level = Math.pow(2, levelExponent);
+        try {
+            // snapshots are taken in parent coordinates, undo the canvas transform and render at the tile level instead
+            return new Scale(level, level).createConcatenation(canvas.getLocalToParentTransform().createInverse());
+        } catch (NonInvertibleTransformException e) {
+            return null;
+        }
+    }
+
+    private Image renderTile(Transform toLocal, TileCache.TileKey key) {
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        parameters.setTransform(toLocal);
+        parameters.setViewport(new Rectangle2D(key.getX() * (double) TILE_SIZE, key.getY() * (double) TILE_SIZE, TILE_SIZE, TILE_SIZE));
+        return canvas.snapshot(parameters, null);
+    }
+
+    /**
+     * Creates a view showing the part of a tile inside the covered area
+     */
+    private ImageView createTileView(Image image, TileCache.TileKey key) {
+        double x = key.getX() * tileLocalSize;
+        double y = key.getY() * tileLocalSize;
+        double minX = Math.max(x, covered.getMinX());
+        double minY = Math.max(y, covered.getMinY());
+        double maxX = Math.min(x + tileLocalSize, covered.getMaxX());
+        double maxY = Math.min(y + tileLocalSize, covered.getMaxY());
+        double pixelsPerUnit = TILE_SIZE / tileLocalSize;
+
+        ImageView view = new ImageView(image);
+        view.setViewport(new Rectangle2D((minX - x) * pixelsPerUnit, (minY - y) * pixelsPerUnit, (maxX - minX) * pixelsPerUnit, (maxY - minY) * pixelsPerUnit));
+        view.setX(minX);
+        view.setY(minY);
+        view.setFitWidth(maxX - minX);
+        view.setFitHeight(maxY - minY);
+        view.setSmooth(true);
+        return view;
+    }
+}
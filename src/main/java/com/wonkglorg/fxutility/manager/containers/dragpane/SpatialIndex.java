@@ -0,0 +1,354 @@
+package com.wonkglorg.fxutility.manager.containers.dragpane;
+
+import javafx.geometry.Bounds;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A quadtree for looking up items by their bounds. The tree grows as needed so items can be placed anywhere, including negative coordinates.
+ * Items that cross the border of a quadrant are kept in the smallest quadrant fully containing them. Quadrants are merged again once
+ * removing or moving items leaves few enough items in them.
+ *
+ * @param <T> the type of the items
+ */
+public class SpatialIndex<T> {
+
+    private static final int MAX_ITEMS = 8;
+    private static final int MAX_DEPTH = 24;
+    private static final double INITIAL_SIZE = 1024;
+
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+    private Quad<T> root;
+
+    /**
+     * Adds an item or moves it if it is already in the index
+     *
+     * @param item   the item
+     * @param bounds the bounds of the item
+     */
+    public void insert(T item, Bounds bounds) {
+        insert(item, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
+    /**
+     * Adds an item or moves it if it is already in the index
+     */
+    public void insert(T item, double minX, double minY, double maxX, double maxY) {
+        if (!Double.isFinite(minX) || !Double.isFinite(minY) || !Double.isFinite(maxX) || !Double.isFinite(maxY)) {
+            throw new IllegalArgumentException("Bounds of " + item + " must be finite");
+        }
+        remove(item);
+        Entry<T> entry = new Entry<>(item, minX, minY, maxX, maxY);
+        entries.put(item, entry);
+        growToContain(entry);
+        root.insert(entry, 0);
+    }
+
+    /**
+     * Removes an item
+     *
+     * @param item the item
+     * @return true if the item was in the index
+     */
+    public boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) return false;
+        Quad<T> quad = entry.quad;
+        quad.removeItem(entry);
+
+        // merge the highest quadrant that has few enough items left so empty quadrants do not pile up
+        Quad<T> merge = null;
+        for (Quad<T> current = quad; current != null; current = current.parent) {
+            current.count--;
+            if (current.children != null && current.count <= MAX_ITEMS) merge = current;
+        }
+        if (entries.isEmpty()) root = null;
+        else if (merge != null) merge.merge();
+        return true;
+    }
+
+    /**
+     * @return true if the item is in the index
+     */
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Gets all items containing a point
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the items at the point
+     */
+    public List<T> query(double x, double y) {
+        return query(x, y, x, y);
+    }
+
+    /**
+     * Gets all items intersecting an area
+     *
+     * @param bounds the area
+     * @return the items in the area
+     */
+    public List<T> query(Bounds bounds) {
+        return query(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
+    /**
+     * Gets all items intersecting an area
+     */
+    public List<T> query(double minX, double minY, double maxX, double maxY) {
+        List<T> result = new ArrayList<>();
+        if (root != null) root.query(minX, minY, maxX, maxY, result);
+        return result;
+    }
+
+    /**
+     * Gets the item closest to a point, the distance is measured to the bounds of each item
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the closest item or null if the index is empty
+     */
+    public T nearest(double x, double y) {
+        if (root == null || entries.isEmpty()) return null;
+
+        PriorityQueue<Candidate<T>> queue = new PriorityQueue<>();
+        queue.add(new Candidate<>(root.distance(x, y), root, null));
+        while (!queue.isEmpty()) {
+            Candidate<T> candidate = queue.poll();
+            if (candidate.entry != null) return candidate.entry.item;
+
+            Quad<T> quad = candidate.quad;
+            for (Entry<T> entry : quad.items) {
+                queue.add(new Candidate<>(entry.distance(x, y), null, entry));
+            }
+            if (quad.children != null) {
+                for (Quad<T> child : quad.children) {
+                    queue.add(new Candidate<>(child.distance(x, y), child, null));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the amount of items in the index
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all items
+     */
+    public void clear() {
+        entries.clear();
+        root = null;
+    }
+
+    /**
+     * Makes sure the root quadrant contains the entry, doubling it towards the entry as often as needed
+     */
+    private void growToContain(Entry<T> entry) {
+        if (root == null) {
+            double size = INITIAL_SIZE;
+            while (size < entry.maxX - entry.minX || size < entry.maxY - entry.minY) {
+                size *= 2;
+            }
+            root = new Quad<>(Math.floor(entry.minX / size) * size, Math.floor(entry.minY / size) * size, size);
+        }
+
+        while (!root.contains(entry)) {
+            boolean left = entry.minX < root.minX;
+            boolean up = entry.minY < root.minY;
+            double size = root.size;
+            Quad<T> grown = new Quad<>(left ? root.minX - size : root.minX, up ? root.minY - size : root.minY, size * 2);
+            grown.children = grown.createChildren();
+            grown.children[(left ? 1 : 0) + (up ? 2 : 0)] = root;
+            grown.count = root.count;
+            root.parent = grown;
+            root = grown;
+        }
+    }
+
+    private static final class Quad<T> {
+        private final double minX;
+        private final double minY;
+        private final double size;
+        private final List<Entry<T>> items = new ArrayList<>();
+        private Quad<T>[] children;
+        private Quad<T> parent;
+        // items in this quadrant and all quadrants below it
+        private int count;
+
+        Quad(double minX, double minY, double size) {
+            this.minX = minX;
+            this.minY = minY;
+            this.size = size;
+        }
+
+        void insert(Entry<T> entry, int depth) {
+            count++;
+            if (children != null) {
+                Quad<T> child = childContaining(entry);
+                if (child != null) {
+                    child.insert(entry, depth + 1);
+                    return;
+                }
+            }
+
+            addItem(entry);
+
+            if (children == null && items.size() > MAX_ITEMS && depth < MAX_DEPTH) {
+                children = createChildren();
+                List<Entry<T>> current = new ArrayList<>(items);
+                items.clear();
+                for (Entry<T> item : current) {
+                    Quad<T> child = childContaining(item);
+                    if (child == null) addItem(item);
+                    else child.insert(item, depth + 1);
+                }
+            }
+        }
+
+        private void addItem(Entry<T> entry) {
+            entry.quad = this;
+            entry.index = items.size();
+            items.add(entry);
+        }
+
+        /**
+         * Removes an item in constant time by moving the last item into its place
+         */
+        void removeItem(Entry<T> entry) {
+            Entry<T> last = items.remove(items.size() - 1);
+            if (last != entry) {
+                items.set(entry.index, last);
+                last.index = entry.index;
+            }
+            entry.quad = null;
+        }
+
+        /**
+         * Moves all items below this quadrant into it and drops the quadrants below
+         */
+        void merge() {
+            List<Entry<T>> below = new ArrayList<>();
+            for (Quad<T> child : children) {
+                child.collect(below);
+            }
+            children = null;
+            for (Entry<T> entry : below) {
+                addItem(entry);
+            }
+        }
+
+        private void collect(List<Entry<T>> result) {
+            result.addAll(items);
+            if (children == null) return;
+            for (Quad<T> child : children) {
+                child.collect(result);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Quad<T>[] createChildren() {
+            double half = size / 2;
+            Quad<T>[] quads = (Quad<T>[]) new Quad<?>[]{
+                    new Quad<T>(minX, minY, half),
+                    new Quad<T>(minX + half, minY, half),
+                    new Quad<T>(minX, minY + half, half),
+                    new Quad<T>(minX + half, minY + half, half)
+            };
+            for (Quad<T> quad : quads) {
+                quad.parent = this;
+            }
+            return quads;
+        }
+
+        Quad<T> childContaining(Entry<T> entry) {
+            for (Quad<T> child : children) {
+                if (child != null && child.contains(entry)) return child;
+            }
+            return null;
+        }
+
+        boolean contains(Entry<T> entry) {
+            return entry.minX >= minX && entry.maxX <= minX + size && entry.minY >= minY && entry.maxY <= minY + size;
+        }
+
+        void query(double qMinX, double qMinY, double qMaxX, double qMaxY, List<T> result) {
+            if (qMaxX < minX || qMinX > minX + size || qMaxY < minY || qMinY > minY + size) return;
+            for (Entry<T> entry : items) {
+                if (entry.intersects(qMinX, qMinY, qMaxX, qMaxY)) result.add(entry.item);
+            }
+            if (children != null) {
+                for (Quad<T> child : children) {
+                    child.query(qMinX, qMinY, qMaxX, qMaxY, result);
+                }
+            }
+        }
+
+        double distance(double x, double y) {
+            return SpatialIndex.distance(x, y, minX, minY, minX + size, minY + size);
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+        private Quad<T> quad;
+        private int index;
+
+        Entry(T item, double minX, double minY, double maxX, double maxY) {
+            this.item = item;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        boolean intersects(double qMinX, double qMinY, double qMaxX, double qMaxY) {
+            return maxX >= qMinX && minX <= qMaxX && maxY >= qMinY && minY <= qMaxY;
+        }
+
+        double distance(double x, double y) {
+            return SpatialIndex.distance(x, y, minX, minY, maxX, maxY);
+        }
+    }
+
+    private static final class Candidate<T> implements Comparable<Candidate<T>> {
+        private final double distance;
+        private final Quad<T> quad;
+        private final Entry<T> entry;
+
+        Candidate(double distance, Quad<T> quad, Entry<T> entry) {
+            this.distance = distance;
+            this.quad = quad;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(Candidate<T> other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+
+    /**
+     * Distance from a point to a rectangle, 0 if the point is inside
+     */
+    private static double distance(double x, double y, double minX, double minY, double maxX, double maxY) {
+        double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
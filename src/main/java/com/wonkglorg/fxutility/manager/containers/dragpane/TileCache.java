@@ -0,0 +1,101 @@
+package com.wonkglorg.fxutility.manager.containers.dragpane;
+
+import javafx.scene.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of snapshot tiles limited by the memory the tiles take up
+ */
+final class TileCache {
+
+    private final Map<TileKey, Image> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long budget;
+    private long usedBytes;
+
+    TileCache(long budget) {
+        this.budget = budget;
+    }
+
+    Image get(TileKey key) {
+        return tiles.get(key);
+    }
+
+    void put(TileKey key, Image image) {
+        Image previous = tiles.put(key, image);
+        if (previous != null) usedBytes -= sizeOf(previous);
+        usedBytes += sizeOf(image);
+        trim();
+    }
+
+    void clear() {
+        tiles.clear();
+        usedBytes = 0;
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    void setBudget(long budget) {
+        this.budget = budget;
+        trim();
+    }
+
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private void trim() {
+        Iterator<Image> iterator = tiles.values().iterator();
+        while (usedBytes > budget && iterator.hasNext()) {
+            usedBytes -= sizeOf(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    /**
+     * Identifies a tile by its zoom level and position in the tile grid of that level
+     */
+    static final class TileKey {
+        private final int level;
+        private final int x;
+        private final int y;
+
+        TileKey(int level, int x, int y) {
+            this.level = level;
+            this.x = x;
+            this.y = y;
+        }
+
+        int getLevel() {
+            return level;
+        }
+
+        int getX() {
+            return x;
+        }
+
+        int getY() {
+            return y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey other)) return false;
+            return level == other.level && x == other.x && y == other.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * level + x) + y;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.wonkglorg.fxutility.manager.containers.dragpane;
+
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Only keeps nodes for the {@link CanvasItem}s in or near the visible area of a {@link PannableCanvas}. Nodes of items that leave the
+ * visible area are removed from the canvas and reused for items of the same type that become visible.
+ * <p>
+ * Nodes are positioned with their translation, so dragging them with {@link NodeGestures} works as usual, the new position is written
+ * back to the item once the node is reused. Items are kept in a {@link SpatialIndex}, so a refresh only looks at the items near the visible area,
+ * call {@link #updateItem(CanvasItem)} after moving or resizing an item directly.
+ */
+public class VirtualizedLayer {
+
+    private static final int DEFAULT_POOL_SIZE = 256;
+
+    private final PannableCanvas canvas;
+    private final Function<CanvasItem, Node> factory;
+    private final BiConsumer<Node, CanvasItem> binder;
+    private final List<CanvasItem> items = new ArrayList<>();
+    private final SpatialIndex<CanvasItem> index = new SpatialIndex<>();
+    private final Map<CanvasItem, Node> shown = new IdentityHashMap<>();
+    private final Map<Object, Deque<Node>> pools = new HashMap<>();
+    private final Runnable viewportListener = this::requestRefresh;
+    private double margin = 200;
+    private int maxPoolSize = DEFAULT_POOL_SIZE;
+    private boolean refreshPending;
+    private long createdNodes;
+
+    /**
+     * @param canvas  the canvas the nodes are added to
+     * @param factory creates a new node for an item, only called if no node of the same type can be reused
+     * @param binder  updates a new or reused node to show an item
+     */
+    public VirtualizedLayer(PannableCanvas canvas, Function<CanvasItem, Node> factory, BiConsumer<Node, CanvasItem> binder) {
+        this.canvas = canvas;
+        this.factory = factory;
+        this.binder = binder;
+        canvas.addViewportListener(viewportListener);
+    }
+
+    /**
+     * Adds an item, its node is created once it is near the visible area
+     *
+     * @param item the item to add
+     */
+    public void addItem(CanvasItem item) {
+        items.add(item);
+        index(item);
+        requestRefresh();
+    }
+
+    /**
+     * Updates the node and the index after the position or size of an item was changed
+     *
+     * @param item the changed item
+     */
+    public void updateItem(CanvasItem item) {
+        if (!index.contains(item)) return;
+        index(item);
+        Node node = shown.get(item);
+        if (node != null) {
+            node.setTranslateX(item.getX());
+            node.setTranslateY(item.getY());
+        }
+        requestRefresh();
+    }
+
+    /**
+     * Removes an item and its node
+     *
+     * @param item the item to remove
+     */
+    public void removeItem(CanvasItem item) {
+        if (!items.remove(item)) return;
+        index.remove(item);
+        Node node = shown.remove(item);
+        if (node == null) return;
+        canvas.getChildren().remove(node);
+        release(item, node);
+    }
+
+    /**
+     * @return an unmodifiable view of all items
+     */
+    public List<CanvasItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Gets the node currently showing an item
+     *
+     * @param item the item
+     * @return the node or null if the item is not near the visible area
+     */
+    public Node getNode(CanvasItem item) {
+        return shown.get(item);
+    }
+
+    /**
+     * Schedules a refresh of the shown nodes, multiple requests before the next refresh are merged
+     */
+    public void requestRefresh() {
+        if (refreshPending) return;
+        refreshPending = true;
+        Platform.runLater(this::refresh);
+    }
+
+    /**
+     * Creates nodes for items that became visible and releases the nodes of items that are no longer visible
+     */
+    public void refresh() {
+        refreshPending = false;
+        // the canvas refreshes its layers once the tiles are removed again
+        if (canvas.isSnapshotActive()) return;
+        Bounds visible = canvas.getVisibleBounds();
+        if (visible == null) return;
+
+        double scaledMargin = margin / canvas.getScale();
+        double minX = visible.getMinX() - scaledMargin;
+        double minY = visible.getMinY() - scaledMargin;
+        double maxX = visible.getMaxX() + scaledMargin;
+        double maxY = visible.getMaxY() + scaledMargin;
+
+        // release first so the freed nodes can be reused right away
+        Set<Node> released = new HashSet<>();
+        Iterator<Map.Entry<CanvasItem, Node>> iterator = shown.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CanvasItem, Node> entry = iterator.next();
+            CanvasItem item = entry.getKey();
+            Node node = entry.getValue();
+            syncPosition(item, node);
+            if (!item.intersects(minX, minY, maxX, maxY)) {
+                iterator.remove();
+                released.add(node);
+                release(item, node);
+            }
+        }
+        // one change for all nodes instead of searching the children and firing a change for every node
+        if (!released.isEmpty()) canvas.getChildren().removeAll(released);
+
+        List<Node> added = new ArrayList<>();
+        for (CanvasItem item : index.query(minX, minY, maxX, maxY)) {
+            if (shown.containsKey(item)) continue;
+            Node node = acquire(item);
+            shown.put(item, node);
+            added.add(node);
+        }
+        canvas.getChildren().addAll(added);
+    }
+
+    private Node acquire(CanvasItem item) {
+        Deque<Node> pool = pools.get(item.getType());
+        Node node = pool == null ? null : pool.poll();
+        if (node == null) {
+            node = factory.apply(item);
+            createdNodes++;
+        }
+        binder.accept(node, item);
+        node.setTranslateX(item.getX());
+        node.setTranslateY(item.getY());
+        return node;
+    }
+
+    /**
+     * Writes the position of a node back to its item, it could have been dragged
+     */
+    private void syncPosition(CanvasItem item, Node node) {
+        if (item.getX() == node.getTranslateX() && item.getY() == node.getTranslateY()) return;
+        item.setX(node.getTranslateX());
+        item.setY(node.getTranslateY());
+        index(item);
+    }
+
+    private void index(CanvasItem item) {
+        index.insert(item, item.getX(), item.getY(), item.getX() + item.getWidth(), item.getY() + item.getHeight());
+    }
+
+    /**
+     * Keeps the node of an item for reuse, it has to be removed from the canvas separately
+     */
+    private void release(CanvasItem item, Node node) {
+        syncPosition(item, node);
+        Deque<Node> pool = pools.computeIfAbsent(item.getType(), type -> new ArrayDeque<>());
+        if (pool.size() < maxPoolSize) pool.push(node);
+    }
+
+    /**
+     * Removes all nodes from the canvas and stops listening to it
+     */
+    public void dispose() {
+        canvas.removeViewportListener(viewportListener);
+        shown.forEach(this::release);
+        canvas.getChildren().removeAll(new HashSet<>(shown.values()));
+        shown.clear();
+        pools.clear();
+    }
+
+    /**
+     * @return the amount of nodes currently on the canvas
+     */
+    public int getShownCount() {
+        return shown.size();
+    }
+
+    /**
+     * @return the amount of nodes created by the factory so far
+     */
+    public long getCreatedNodeCount() {
+        return createdNodes;
+    }
+
+    public double getMargin() {
+        return margin;
+    }
+
+    /**
+     * Sets how far outside the visible area nodes are still created, in screen pixels
+     *
+     * @param margin the margin
+     */
+    public void setMargin(double margin) {
+        this.margin = margin;
+        requestRefresh();
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * Sets how many unused nodes are kept per type for reuse
+     *
+     * @param maxPoolSize the maximum pool size
+     */
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+}
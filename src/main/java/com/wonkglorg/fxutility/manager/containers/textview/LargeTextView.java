@@ -0,0 +1,476 @@
+package com.wonkglorg.fxutility.manager.containers.textview;
+
+import com.wonkglorg.fxutility.manager.file.FileExecutors;
+import com.wonkglorg.fxutility.manager.file.LineIndex;
+import com.wonkglorg.fxutility.manager.file.TxtFileReader;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows a text file of any size. Only the visible lines are drawn, they are read in pages on a background thread
+ * and the most recently used pages are kept in memory. The file is indexed in the background so any line can be scrolled to right away.
+ * <p>
+ * Pages are read one at a time, the requested page closest to the visible lines first. Pages that were scrolled past before their
+ * read started are dropped, so dragging the scroll bar across the file does not queue a read for every page passed.
+ * <p>
+ * Lines are measured assuming a monospaced font.
+ */
+public class LargeTextView extends Region {
+
+    private static final int PAGE_SIZE = 256;
+    private static final double PADDING = 4;
+    private static final long MIN_RETRY_DELAY = 500;
+    private static final long MAX_RETRY_DELAY = 30_000;
+
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar verticalBar = new ScrollBar();
+    private final ScrollBar horizontalBar = new ScrollBar();
+
+    private final Map<Long, List<String>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, List<String>> eldest) {
+            return size() > maxCachedPages;
+        }
+    };
+    private final Set<Long> loadingPages = new HashSet<>();
+    private final Set<Long> requestedPages = new HashSet<>();
+    private boolean readRunning;
+    private final Map<Long, PageFailure> failedPages = new HashMap<>();
+
+    private final AnimationTimer indexWatcher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            updateLineCount();
+        }
+    };
+
+    private TxtFileReader reader;
+    private LineIndex lineIndex;
+    private int generation;
+    private long lineCount;
+    private int longestLine;
+    private int maxCachedPages = 64;
+
+    private Font font = Font.font("Monospaced", 13);
+    private Paint textFill = Color.BLACK;
+    private Paint background = Color.WHITE;
+    private Paint errorFill = Color.FIREBRICK;
+    private String error;
+    private double lineHeight;
+    private double charWidth;
+    private boolean redrawPending;
+
+    public LargeTextView() {
+        verticalBar.setOrientation(Orientation.VERTICAL);
+        horizontalBar.setOrientation(Orientation.HORIZONTAL);
+        verticalBar.setMin(0);
+        horizontalBar.setMin(0);
+        verticalBar.valueProperty().addListener(observable -> requestRedraw());
+        horizontalBar.valueProperty().addListener(observable -> requestRedraw());
+        getChildren().addAll(canvas, verticalBar, horizontalBar);
+
+        addEventHandler(ScrollEvent.SCROLL, event -> {
+            if (lineHeight > 0) scrollBy(verticalBar, -event.getDeltaY() / lineHeight);
+            if (charWidth > 0) scrollBy(horizontalBar, -event.getDeltaX() / charWidth);
+            event.consume();
+        });
+        measureFont();
+        getStyleClass().add("large-text-view");
+    }
+
+    public LargeTextView(File file) {
+        this();
+        setFile(file);
+    }
+
+    /**
+     * Shows a file using the default charset
+     *
+     * @param file the file to show or null to show nothing
+     */
+    public void setFile(File file) {
+        setReader(file == null ? null : new TxtFileReader(file));
+    }
+
+    /**
+     * Shows a file
+     *
+     * @param file    the file to show or null to show nothing
+     * @param charset the charset of the file
+     */
+    public void setFile(File file, Charset charset) {
+        setReader(file == null ? null : new TxtFileReader(file, charset));
+    }
+
+    /**
+     * Shows the file of a reader, the file starts getting indexed right away
+     *
+     * @param reader the reader or null to show nothing
+     */
+    public void setReader(TxtFileReader reader) {
+        this.reader = reader;
+        generation++;
+        pages.clear();
+        loadingPages.clear();
+        requestedPages.clear();
+        failedPages.clear();
+        error = null;
+        lineIndex = null;
+        lineCount = 0;
+        longestLine = 0;
+        verticalBar.setValue(0);
+        horizontalBar.setValue(0);
+        indexWatcher.stop();
+
+        if (reader != null) {
+            int currentGeneration = generation;
+            CompletableFuture<LineIndex> future = reader.buildLineIndexAsync(FileExecutors.io());
+            lineIndex = reader.getCurrentLineIndex();
+            indexWatcher.start();
+            future.whenComplete((index, indexError) -> Platform.runLater(() -> {
+                if (currentGeneration != generation) return;
+                indexWatcher.stop();
+                if (indexError != null) setError(indexError);
+                updateLineCount();
+            }));
+        }
+        updateScrollBars();
+        requestRedraw();
+    }
+
+    public TxtFileReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return the message of the last error while reading the file or null if the visible lines were read without errors
+     */
+    public String getError() {
+        return error;
+    }
+
+    private void setError(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        error = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+        requestRedraw();
+    }
+
+    /**
+     * @return the amount of lines indexed so far
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Scrolls so a line is the first visible line
+     *
+     * @param line the zero based line number
+     */
+    public void scrollToLine(long line) {
+        verticalBar.setValue(Math.max(0, Math.min(line, verticalBar.getMax())));
+    }
+
+    /**
+     * @return the zero based number of the first visible line
+     */
+    public long getFirstVisibleLine() {
+        return (long) verticalBar.getValue();
+    }
+
+    /**
+     * Sets how many pages of {@value #PAGE_SIZE} lines are kept in memory
+     *
+     * @param maxCachedPages the maximum amount of cached pages
+     */
+    public void setMaxCachedPages(int maxCachedPages) {
+        if (maxCachedPages < 1) throw new IllegalArgumentException("At least one page has to be cached");
+        this.maxCachedPages = maxCachedPages;
+    }
+
+    public int getMaxCachedPages() {
+        return maxCachedPages;
+    }
+
+    /**
+     * @param font the font, should be monospaced
+     */
+    public void setFont(Font font) {
+        this.font = font;
+        measureFont();
+        updateScrollBars();
+        requestRedraw();
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    public void setTextFill(Paint textFill) {
+        this.textFill = textFill;
+        requestRedraw();
+    }
+
+    public Paint getTextFill() {
+        return textFill;
+    }
+
+    public void setBackgroundFill(Paint background) {
+        this.background = background;
+        requestRedraw();
+    }
+
+    public Paint getBackgroundFill() {
+        return background;
+    }
+
+    public void setErrorFill(Paint errorFill) {
+        this.errorFill = errorFill;
+        requestRedraw();
+    }
+
+    public Paint getErrorFill() {
+        return errorFill;
+    }
+
+    private void measureFont() {
+        Text text = new Text("M");
+        text.setFont(font);
+        lineHeight = Math.ceil(text.getLayoutBounds().getHeight());
+        charWidth = text.getLayoutBounds().getWidth();
+    }
+
+    private void updateLineCount() {
+        if (lineIndex == null || lineIndex.getLineCount() == lineCount) return;
+        lineCount = lineIndex.getLineCount();
+        updateScrollBars();
+        requestRedraw();
+    }
+
+    private static void scrollBy(ScrollBar bar, double amount) {
+        bar.setValue(Math.max(bar.getMin(), Math.min(bar.getMax(), bar.getValue() + amount)));
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double barWidth = verticalBar.prefWidth(-1);
+        double barHeight = horizontalBar.prefHeight(-1);
+        double width = Math.max(0, getWidth() - barWidth);
+        double height = Math.max(0, getHeight() - barHeight);
+
+        canvas.setWidth(width);
+        canvas.setHeight(height);
+        canvas.relocate(0, 0);
+        verticalBar.resizeRelocate(width, 0, barWidth, height);
+        horizontalBar.resizeRelocate(0, height, width, barHeight);
+        updateScrollBars();
+        requestRedraw();
+    }
+
+    private int visibleLineCount() {
+        return lineHeight <= 0 ? 0 : (int) Math.ceil((canvas.getHeight() - PADDING) / lineHeight);
+    }
+
+    private void updateScrollBars() {
+        int visibleLines = Math.max(1, visibleLineCount() - 1);
+        verticalBar.setMax(Math.max(0, lineCount - visibleLines));
+        verticalBar.setVisibleAmount(visibleLines);
+        verticalBar.setUnitIncrement(1);
+        verticalBar.setBlockIncrement(visibleLines);
+
+        int visibleColumns = charWidth <= 0 ? 1 : Math.max(1, (int) (canvas.getWidth() / charWidth) - 1);
+        horizontalBar.setMax(Math.max(0, longestLine - visibleColumns));
+        horizontalBar.setVisibleAmount(visibleColumns);
+        horizontalBar.setUnitIncrement(1);
+        horizontalBar.setBlockIncrement(visibleColumns);
+    }
+
+    /**
+     * Schedules a redraw, multiple requests before the next redraw are merged
+     */
+    private void requestRedraw() {
+        if (redrawPending) return;
+        redrawPending = true;
+        Platform.runLater(this::redraw);
+    }
+
+    private void redraw() {
+        redrawPending = false;
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.setFill(background);
+        gc.fillRect(0, 0, width, height);
+        gc.setFont(font);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.TOP);
+        if (reader == null || lineCount == 0) {
+            drawError(gc);
+            return;
+        }
+
+        long first = (long) verticalBar.getValue();
+        long last = Math.min(lineCount, first + visibleLineCount());
+        int firstColumn = (int) horizontalBar.getValue();
+        int columns = (int) Math.ceil(width / charWidth) + 1;
+        int previousLongest = longestLine;
+
+        gc.setFill(textFill);
+
+        boolean failed = false;
+        double y = PADDING;
+        for (long line = first; line < last; line++, y += lineHeight) {
+            List<String> page = getPage(line / PAGE_SIZE);
+            if (page == null) {
+                failed |= failedPages.containsKey(line / PAGE_SIZE);
+                continue;
+            }
+            int index = (int) (line % PAGE_SIZE);
+            if (index >= page.size()) continue;
+
+            String text = page.get(index);
+            longestLine = Math.max(longestLine, text.length());
+            // very long lines are cut to the visible columns so drawing stays cheap
+            if (firstColumn >= text.length()) continue;
+            gc.fillText(text.substring(firstColumn, Math.min(text.length(), firstColumn + columns)), PADDING, y);
+        }
+
+        // prefetch the page right after the visible lines so scrolling down does not show empty lines
+        if (last < lineCount) getPage(last / PAGE_SIZE + 1);
+        if (longestLine != previousLongest) updateScrollBars();
+        if (failed) drawError(gc);
+    }
+
+    private void drawError(GraphicsContext gc) {
+        if (error == null) return;
+        gc.setFill(background);
+        gc.fillRect(0, 0, canvas.getWidth(), lineHeight + PADDING * 2);
+        gc.setFill(errorFill);
+        gc.fillText("Could not read file: " + error, PADDING, PADDING);
+    }
+
+    /**
+     * Gets a page from the cache or starts loading it, a page that could not be read is tried again after a growing delay
+     *
+     * @return the page or null if it is not loaded yet
+     */
+    private List<String> getPage(long page) {
+        if (page * PAGE_SIZE >= lineCount) return null;
+        List<String> lines = pages.get(page);
+        if (lines != null || loadingPages.contains(page)) return lines;
+        PageFailure failure = failedPages.get(page);
+        if (failure != null && System.currentTimeMillis() < failure.retryAt) return null;
+        loadingPages.add(page);
+        requestedPages.add(page);
+        readNextPage();
+        return null;
+    }
+
+    /**
+     * Starts reading the requested page closest to the visible lines if no read is running, requested pages that are no longer
+     * near the visible lines are dropped and requested again once they are needed
+     */
+    private void readNextPage() {
+        if (readRunning || requestedPages.isEmpty()) return;
+        long firstPage = (long) verticalBar.getValue() / PAGE_SIZE;
+        long lastPage = ((long) verticalBar.getValue() + visibleLineCount()) / PAGE_SIZE + 1;
+
+        long page = -1;
+        Iterator<Long> iterator = requestedPages.iterator();
+        while (iterator.hasNext()) {
+            long candidate = iterator.next();
+            if (candidate < firstPage - 1 || candidate > lastPage + 1) {
+                iterator.remove();
+                loadingPages.remove(candidate);
+            } else if (page < 0 || Math.abs(candidate - firstPage) < Math.abs(page - firstPage)) {
+                page = candidate;
+            }
+        }
+        if (page < 0) return;
+        requestedPages.remove(page);
+        readRunning = true;
+        readPage(page);
+    }
+
+    private void readPage(long page) {
+        TxtFileReader currentReader = reader;
+        int currentGeneration = generation;
+        FileExecutors.io().execute(() -> {
+            List<String> loaded = null;
+            RuntimeException loadError = null;
+            try {
+                loaded = currentReader.readLines(page * PAGE_SIZE, PAGE_SIZE);
+            } catch (RuntimeException e) {
+                loadError = e;
+            }
+            List<String> result = loaded;
+            RuntimeException resultError = loadError;
+            Platform.runLater(() -> {
+                readRunning = false;
+                if (currentGeneration == generation) {
+                    loadingPages.remove(page);
+                    if (result != null) {
+                        pages.put(page, result);
+                        if (failedPages.remove(page) != null && failedPages.isEmpty()) error = null;
+                    } else {
+                        pageFailed(page, resultError);
+                    }
+                    requestRedraw();
+                }
+                readNextPage();
+            });
+        });
+    }
+
+    private void pageFailed(long page, RuntimeException exception) {
+        PageFailure previous = failedPages.get(page);
+        long delay = previous == null ? MIN_RETRY_DELAY : Math.min(MAX_RETRY_DELAY, previous.delay * 2);
+        failedPages.put(page, new PageFailure(delay, System.currentTimeMillis() + delay));
+        setError(exception);
+
+        int currentGeneration = generation;
+        FileExecutors.scheduler().schedule(() -> Platform.runLater(() -> {
+            if (currentGeneration == generation) requestRedraw();
+        }), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A page that could not be read and when it is tried again
+     */
+    private static final class PageFailure {
+        private final long delay;
+        private final long retryAt;
+
+        PageFailure(long delay, long retryAt) {
+            this.delay = delay;
+            this.retryAt = retryAt;
+        }
+    }
+}
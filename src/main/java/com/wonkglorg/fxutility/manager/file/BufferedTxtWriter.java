@@ -0,0 +1,251 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A long lived writer for files written to many times, like logs. Lines from any thread are encoded straight into one reusable buffer
+ * and written to the file together, either when the buffer is full or on the next periodic flush.
+ * <p>
+ * A flush swaps the filled buffer for an empty one and writes and syncs it without blocking writers, they keep filling the other buffer
+ * in the meantime. Every write returns the future of the batch its lines are part of, so callers can wait until their lines are durable.
+ */
+public class BufferedTxtWriter implements Closeable {
+
+    /**
+     * When the written data is forced to the storage device
+     */
+    public enum FsyncPolicy {
+        /**
+         * Leave it to the operating system
+         */
+        NEVER,
+        /**
+         * At most once per fsync interval
+         */
+        INTERVAL,
+        /**
+         * After every flush
+         */
+        EVERY_BATCH
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL = 50;
+
+    private final Object lock = new Object();
+    // held while writing to the channel, taken while holding the lock so batches reach the file in order
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private ByteBuffer buffer;
+    private ByteBuffer spare;
+    private final ScheduledFuture<?> flushTask;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.NEVER;
+    private volatile long fsyncIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+    private long lastSync = System.nanoTime();
+    private CompletableFuture<Void> batch = new CompletableFuture<>();
+    private volatile boolean dirty;
+    private boolean closed;
+
+    public BufferedTxtWriter(File file, boolean append) throws IOException {
+        this(file, append, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param file                the file to write to
+     * @param append              true to append to the file, false to replace its content
+     * @param charset             the charset to write with
+     * @param bufferSize          the size of each of the two buffers in bytes
+     * @param flushIntervalMillis how often the buffer is written to the file
+     * @throws IOException if the file could not be opened
+     */
+    public BufferedTxtWriter(File file, boolean append, Charset charset, int bufferSize, long flushIntervalMillis) throws IOException {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
+        if (flushIntervalMillis <= 0) throw new IllegalArgumentException("Flush interval must be positive");
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.spare = ByteBuffer.allocateDirect(bufferSize);
+        this.flushTask = FileExecutors.scheduler().scheduleWithFixedDelay(this::requestFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes lines, each followed by a line break. They reach the file with the next flush
+     *
+     * @param lines the lines to write
+     * @return a future completing once the batch containing the lines is written to the file, and forced to the storage device
+     * if the {@link FsyncPolicy} syncs that batch
+     */
+    public CompletableFuture<Void> write(CharSequence... lines) {
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("Writer is closed");
+            try {
+                for (CharSequence line : lines) {
+                    encoder.reset();
+                    encode(CharBuffer.wrap(line), false);
+                    encode(CharBuffer.wrap("\n"), true);
+                    while (encoder.flush(buffer).isOverflow()) {
+                        drain();
+                    }
+                }
+                dirty = true;
+                return batch;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+                continue;
+            }
+            if (result.isError()) {
+                try {
+                    result.throwException();
+                } catch (CharacterCodingException e) {
+                    throw new IOException(e);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Writes the buffer to the file when it is full in the middle of a write, must hold the lock
+     */
+    private void drain() throws IOException {
+        ioLock.lock();
+        try {
+            writeFully(buffer);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Writes all buffered lines to the file and syncs it if the fsync policy requires it. Writers are only blocked while the buffers are swapped
+     *
+     * @throws IOException if the file could not be written
+     */
+    public void flush() throws IOException {
+        ByteBuffer full;
+        CompletableFuture<Void> done;
+        synchronized (lock) {
+            if (closed || !dirty) return;
+            full = buffer;
+            buffer = spare;
+            spare = full;
+            done = batch;
+            batch = new CompletableFuture<>();
+            dirty = false;
+            // taken before the lock is released so a buffer drained by a later write cannot overtake this batch
+            ioLock.lock();
+        }
+        try {
+            writeFully(full);
+            long now = System.nanoTime();
+            if (fsyncPolicy == FsyncPolicy.EVERY_BATCH || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncIntervalNanos)) {
+                channel.force(false);
+                lastSync = now;
+            }
+            done.complete(null);
+        } catch (IOException e) {
+            // the batch is lost, the buffer is reused for the next one
+            full.clear();
+            done.completeExceptionally(e);
+            throw e;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Hands a flush to the io executor, the scheduler itself only runs short tasks
+     */
+    private void requestFlush() {
+        if (!dirty || !flushQueued.compareAndSet(false, true)) return;
+        FileExecutors.io().execute(() -> {
+            flushQueued.set(false);
+            try {
+                flush();
+            } catch (IOException e) {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+            }
+        });
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Sets how often the file is synced with {@link FsyncPolicy#INTERVAL}
+     *
+     * @param millis the interval in milliseconds
+     */
+    public void setFsyncInterval(long millis) {
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Flushes the remaining lines, syncs the file unless the policy is {@link FsyncPolicy#NEVER} and closes it
+     *
+     * @throws IOException if the file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        flushTask.cancel(false);
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            // waits for a running flush, its batch was taken before the remaining lines
+            ioLock.lock();
+        }
+        try {
+            if (dirty) writeFully(buffer);
+            if (fsyncPolicy != FsyncPolicy.NEVER) channel.force(false);
+            batch.complete(null);
+        } catch (IOException e) {
+            batch.completeExceptionally(e);
+            throw e;
+        } finally {
+            ioLock.unlock();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import com.wonkglorg.fxutility.manager.util.FxBatcher;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Lists files matching a {@link FileChooserUtil.FileType} off the JavaFX Application Thread. Sub directories are walked in parallel and matches
+ * are handed to the JavaFX Application Thread in batches while the walk is still running.
+ * <p>
+ * Directory listings are cached and watched, a cached listing is dropped as soon as its directory changes. Every cached listing uses one
+ * watch of the operating system, so the cache is limited to {@link #setMaxCachedDirectories(int) a maximum amount} of directories,
+ * the least recently used listings are dropped first.
+ */
+public class DirectoryScanner implements Closeable {
+
+    private final ForkJoinPool pool;
+    private final Map<Path, Listing> listings = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxCachedDirectories = 1024;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private volatile boolean closed;
+
+    /**
+     * Creates a scanner using all available cores
+     */
+    public DirectoryScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the maximum amount of directories listed at the same time
+     */
+    public DirectoryScanner(int parallelism) {
+        pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("directory-scanner-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Scans a directory for files of a file type and adds them to a list
+     *
+     * @param directory the directory to scan
+     * @param fileType  the file type to match
+     * @param recursive true to also scan all sub directories
+     * @param target    the list the matching files get added to on the JavaFX Application Thread
+     * @return a future completing with the amount of matching files once all of them have been added to the list
+     */
+    public CompletableFuture<Integer> scan(File directory, FileChooserUtil.FileType fileType, boolean recursive, ObservableList<File> target) {
+        return scan(directory, fileType.getFileTypes(), recursive, target::addAll);
+    }
+
+    /**
+     * Scans a directory for files matching any of the globs, the globs are matched against the file name ignoring case
+     *
+     * @param directory the directory to scan
+     * @param globs     the globs to match, for example "*.png"
+     * @param recursive true to also scan all sub directories
+     * @param onFiles   gets the matching files in batches on the JavaFX Application Thread
+     * @return a future completing with the amount of matching files once all of them have been delivered, cancelling it stops the scan
+     */
+    public CompletableFuture<Integer> scan(File directory, List<String> globs, boolean recursive, Consumer<List<File>> onFiles) {
+        if (closed) throw new IllegalStateException("Scanner is closed");
+        PathMatcher matcher = createMatcher(globs);
+        FxBatcher<File> batcher = new FxBatcher<>(onFiles);
+        AtomicInteger count = new AtomicInteger();
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        ScanTask task = new ScanTask(directory.toPath().toAbsolutePath().normalize(), true, matcher, recursive, batcher, count, future);
+        pool.execute(() -> {
+            try {
+                task.invoke();
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            Platform.runLater(() -> {
+                if (future.isDone()) return;
+                batcher.flush();
+                future.complete(count.get());
+            });
+        });
+        return future;
+    }
+
+    private static PathMatcher createMatcher(List<String> globs) {
+        if (globs.isEmpty()) throw new IllegalArgumentException("At least one glob is required");
+        String pattern = globs.size() == 1 ? globs.get(0) : "{" + String.join(",", globs) + "}";
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.toLowerCase(Locale.ROOT));
+        return path -> matcher.matches(Path.of(path.getFileName().toString().toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Gets the listing of a directory from the cache or reads it if the directory changed since it was last read
+     */
+    private Listing getListing(Path directory) throws IOException {
+        synchronized (listings) {
+            Listing listing = listings.get(directory);
+            if (listing != null) return listing;
+        }
+
+        //the directory is watched before it is read so no change can slip in between
+        WatchKey key = watch(directory);
+        List<Path> files = new ArrayList<>();
+        List<Path> directories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) directories.add(path);
+                else if (attributes.isRegularFile()) files.add(path);
+            }
+        } catch (IOException e) {
+            if (key != null) unwatch(key);
+            throw e;
+        }
+
+        Listing listing = new Listing(files, directories, key);
+        if (key == null) return listing;
+        synchronized (listings) {
+            listings.put(directory, listing);
+            trimCache();
+            // a change that arrived while the directory was read cancelled the key before the listing was cached
+            if (!key.isValid()) listings.remove(directory, listing);
+        }
+        return listing;
+    }
+
+    /**
+     * Starts watching a directory
+     *
+     * @return the watch key or null if the directory cannot be watched, listings of directories that cannot be watched are not cached
+     */
+    private synchronized WatchKey watch(Path directory) {
+        if (closed) return null;
+        try {
+            if (watchService == null) {
+                watchService = directory.getFileSystem().newWatchService();
+                Thread thread = new Thread(this::processEvents, "directory-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(key, directory);
+            return key;
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private void unwatch(WatchKey key) {
+        key.cancel();
+        watchedDirectories.remove(key);
+    }
+
+    private void processEvents() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                key.pollEvents();
+                //the key is cancelled instead of reset, the directory gets watched again the next time it is listed
+                Path directory = watchedDirectories.remove(key);
+                key.cancel();
+                if (directory == null) continue;
+                synchronized (listings) {
+                    Listing listing = listings.get(directory);
+                    if (listing != null && listing.key == key) listings.remove(directory);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    /**
+     * Drops the least recently used listings and their watches until the cache fits its limit
+     */
+    private void trimCache() {
+        Iterator<Listing> iterator = listings.values().iterator();
+        while (listings.size() > maxCachedDirectories && iterator.hasNext()) {
+            Listing listing = iterator.next();
+            iterator.remove();
+            unwatch(listing.key);
+        }
+    }
+
+    /**
+     * Sets how many directory listings are cached, each of them keeps one watch of the operating system
+     *
+     * @param maxCachedDirectories the maximum amount of cached listings, 0 to not cache any
+     */
+    public void setMaxCachedDirectories(int maxCachedDirectories) {
+        if (maxCachedDirectories < 0) throw new IllegalArgumentException("Maximum cannot be negative");
+        synchronized (listings) {
+            this.maxCachedDirectories = maxCachedDirectories;
+            trimCache();
+        }
+    }
+
+    public int getMaxCachedDirectories() {
+        synchronized (listings) {
+            return maxCachedDirectories;
+        }
+    }
+
+    /**
+     * Removes all cached listings
+     */
+    public void clearCache() {
+        synchronized (listings) {
+            for (Listing listing : listings.values()) {
+                unwatch(listing.key);
+            }
+            listings.clear();
+        }
+    }
+
+    /**
+     * @return the amount of cached directory listings
+     */
+    public int getCachedCount() {
+        synchronized (listings) {
+            return listings.size();
+        }
+    }
+
+    /**
+     * Stops all running scans and the directory watcher
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        pool.shutdownNow();
+        clearCache();
+        watchedDirectories.clear();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static class Listing {
+        private final List<Path> files;
+        private final List<Path> directories;
+        private final WatchKey key;
+
+        Listing(List<Path> files, List<Path> directories, WatchKey key) {
+            this.files = files;
+            this.directories = directories;
+            this.key = key;
+        }
+    }
+
+    private class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final boolean root;
+        private final PathMatcher matcher;
+        private final boolean recursive;
+        private final FxBatcher<File> batcher;
+        private final AtomicInteger count;
+        private final CompletableFuture<Integer> future;
+
+        ScanTask(Path directory, boolean root, PathMatcher matcher, boolean recursive, FxBatcher<File> batcher, AtomicInteger count, CompletableFuture<Integer> future) {
+            this.directory = directory;
+            this.root = root;
+            this.matcher = matcher;
+            this.recursive = recursive;
+            this.batcher = batcher;
+            this.count = count;
+            this.future = future;
+        }
+
+        @Override
+        protected void compute() {
+            if (future.isDone()) return;
+            Listing listing;
+            try {
+                listing = getListing(directory);
+            } catch (IOException e) {
+                //unreadable sub directories are skipped, only the scanned directory itself has to be readable
+                if (root) future.completeExceptionally(e);
+                return;
+            }
+
+            List<File> matches = new ArrayList<>();
+            for (Path file : listing.files) {
+                if (matcher.matches(file)) matches.add(file.toFile());
+            }
+            count.addAndGet(matches.size());
+            batcher.addAll(matches);
+
+            if (!recursive || listing.directories.isEmpty()) return;
+            List<ScanTask> tasks = new ArrayList<>(listing.directories.size());
+            for (Path subDirectory : listing.directories) {
+                tasks.add(new ScanTask(subDirectory, false, matcher, true, batcher, count, future));
+            }
+            invokeAll(tasks);
+        }
+
+    }
+}
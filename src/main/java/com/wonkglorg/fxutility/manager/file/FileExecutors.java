@@ -0,0 +1,58 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors used for file operations so they never run on the JavaFX Application Thread
+ */
+public class FileExecutors {
+
+    private static ExecutorService ioExecutor;
+    private static ScheduledExecutorService scheduler;
+
+    private FileExecutors() {
+    }
+
+    /**
+     * Gets the executor used for blocking file io, it uses virtual threads if the runtime supports them and daemon threads otherwise
+     *
+     * @return the io executor
+     */
+    public static synchronized ExecutorService io() {
+        if (ioExecutor == null) ioExecutor = createIoExecutor();
+        return ioExecutor;
+    }
+
+    /**
+     * Gets the executor used for periodic file checks, the scheduled tasks should be short and hand longer work to {@link #io()}
+     *
+     * @return the scheduler
+     */
+    public static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "file-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    private static ExecutorService createIoExecutor() {
+        try {
+            // looked up reflectively since virtual threads are not available in every supported java version
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "file-io-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import java.io.File;
+
+/**
+ * The result of processing a single file, either a value or the error that occurred
+ *
+ * @param <T> the type of the value
+ */
+public class FileResult<T> {
+
+    private final File file;
+    private final int index;
+    private final T value;
+    private final Throwable error;
+
+    FileResult(File file, int index, T value, Throwable error) {
+        this.file = file;
+        this.index = index;
+        this.value = value;
+        this.error = error;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the position of the file in the processed list
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the value or null if processing failed
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return the error or null if processing succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import javafx.concurrent.Task;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A file operation running on the {@link FileExecutors#io()} executor. As a {@link Task} its progress and state can be bound to ui components
+ * and it can be cancelled, {@link #getFuture()} gives the same result as a {@link CompletableFuture}.
+ *
+ * @param <T> the type of the result
+ */
+public class IoTask<T> extends Task<T> {
+
+    /**
+     * The work done by a task
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        /**
+         * @param task the task running the work, used to report progress and check for cancellation
+         * @return the result
+         * @throws Exception if the work failed
+         */
+        T run(IoTask<T> task) throws Exception;
+    }
+
+    private final Work<T> work;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    public IoTask(Work<T> work) {
+        this.work = work;
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) cancel();
+        });
+    }
+
+    /**
+     * Creates a task and starts it on the io executor
+     *
+     * @param work the work to do
+     * @param <T>  the type of the result
+     * @return the started task
+     */
+    public static <T> IoTask<T> submit(Work<T> work) {
+        IoTask<T> task = new IoTask<>(work);
+        FileExecutors.io().execute(task);
+        return task;
+    }
+
+    @Override
+    protected T call() throws Exception {
+        try {
+            T result = work.run(this);
+            if (isCancelled()) future.cancel(false);
+            else future.complete(result);
+            return result;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        future.cancel(false);
+        return cancelled;
+    }
+
+    /**
+     * Reports the progress of the work, updates reaching the JavaFX Application Thread are coalesced
+     *
+     * @param done  the amount of work done
+     * @param total the total amount of work
+     */
+    public void reportProgress(long done, long total) {
+        updateProgress(done, total);
+    }
+
+    /**
+     * @return a future completing with the result of the task, cancelling it cancels the task
+     */
+    public CompletableFuture<T> getFuture() {
+        return future;
+    }
+}
@@ -0,0 +1,132 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the lines of a file one by one starting at a byte offset, only one buffer of the file is held in memory at a time.
+ * {@link #getPosition()} gives the offset of the next line so reading can continue later without starting from the top.
+ * <p>
+ * Lines end at '\n', '\r' or "\r\n" like they do for {@link java.io.BufferedReader#readLine()}, so the charset has to encode them as single bytes
+ * like UTF-8 or ISO-8859-1 do.
+ */
+public class LineCursor implements Iterator<String>, Closeable {
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final ByteBuffer buffer;
+    private final boolean completeLinesOnly;
+    private byte[] lineBytes = new byte[256];
+    private long position;
+    private long bufferStart;
+    private long nextStart;
+    private String next;
+    private boolean endOfFile;
+
+    LineCursor(File file, Charset charset, int bufferSize, long offset, boolean completeLinesOnly) throws IOException {
+        if ("\n".getBytes(charset).length != 1 || "\r".getBytes(charset).length != 1) throw new IllegalArgumentException("Unsupported charset for line reading: " + charset);
+        if (offset < 0) throw new IllegalArgumentException("Offset cannot be negative");
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.charset = charset;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.completeLinesOnly = completeLinesOnly;
+        this.position = offset;
+        this.bufferStart = offset;
+        buffer.flip();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !endOfFile) {
+            try {
+                next = readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        String line = next;
+        next = null;
+        return line;
+    }
+
+    /**
+     * @return the byte offset of the line returned by the next call to {@link #next()}
+     */
+    public long getPosition() {
+        return next != null ? nextStart : position;
+    }
+
+    private String readLine() throws IOException {
+        int length = 0;
+        long lineStart = bufferStart + buffer.position();
+        while (true) {
+            if (!fill()) {
+                endOfFile = true;
+                if (length == 0 || completeLinesOnly) return null;
+                nextStart = lineStart;
+                position = bufferStart;
+                return decode(length);
+            }
+
+            byte b = buffer.get();
+            if (b == '\r') {
+                boolean more = fill();
+                // the '\n' of a "\r\n" could still be written, the line is only complete once it is known how it ends
+                if (!more && completeLinesOnly) {
+                    endOfFile = true;
+                    return null;
+                }
+                if (more && buffer.get(buffer.position()) == '\n') buffer.get();
+                nextStart = lineStart;
+                position = bufferStart + buffer.position();
+                return decode(length);
+            }
+            if (b == '\n') {
+                nextStart = lineStart;
+                position = bufferStart + buffer.position();
+                return decode(length);
+            }
+
+            if (length == lineBytes.length) lineBytes = Arrays.copyOf(lineBytes, length * 2);
+            lineBytes[length++] = b;
+        }
+    }
+
+    /**
+     * Reads the next part of the file if the buffer is used up
+     *
+     * @return false if the end of the file is reached
+     */
+    private boolean fill() throws IOException {
+        if (buffer.hasRemaining()) return true;
+        bufferStart += buffer.limit();
+        buffer.clear();
+        int read = channel.read(buffer, bufferStart);
+        buffer.flip();
+        return read > 0;
+    }
+
+    private String decode(int length) {
+        return new String(lineBytes, 0, length, charset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,339 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * An index of the line offsets of a file, built by scanning the memory mapped file once. The offset of every n-th line (the stride) is kept,
+ * so finding any line takes one lookup plus skipping at most stride - 1 lines. Lines end at '\n', '\r' or "\r\n" the same way as for {@link LineCursor}.
+ * <p>
+ * The index can be built in steps while the already indexed lines are used, continued when the file grows and saved next to the file.
+ */
+public class LineIndex {
+
+    private static final int MAGIC = 0x4C494458;
+    private static final int VERSION = 3;
+    private static final int TAIL_CHECK_SIZE = 4096;
+    private static final int DEFAULT_STRIDE = 64;
+    private static final long MAP_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final String FILE_EXTENSION = ".lidx";
+
+    private final File file;
+    private volatile int stride;
+    private volatile long[] checkpoints = new long[256];
+    private volatile int checkpointCount;
+    private volatile long lineCount;
+    private volatile long indexedBytes;
+    private volatile long lastModified;
+    private boolean lastWasNewline = true;
+    private boolean lastWasCarriageReturn;
+    private long tailChecksum;
+    private boolean restoreAttempted;
+
+    /**
+     * Creates an empty index, use {@link #build()}, {@link #indexMore(long)} or {@link #buildAsync(Executor)} to fill it
+     *
+     * @param file   the file to index
+     * @param stride every how many lines an offset is kept
+     */
+    public LineIndex(File file, int stride) {
+        if (stride <= 0) throw new IllegalArgumentException("Stride must be positive");
+        this.file = file;
+        this.stride = stride;
+    }
+
+    public LineIndex(File file) {
+        this(file, DEFAULT_STRIDE);
+    }
+
+    /**
+     * Loads the index saved next to the file and continues it if the file changed since, or builds a new one if there is none
+     *
+     * @param file the file to index
+     * @param save true to save the index next to the file if it had to be built or continued
+     * @return the complete index
+     * @throws IOException if the file could not be read or the index could not be saved
+     */
+    public static LineIndex open(File file, boolean save) throws IOException {
+        LineIndex index = new LineIndex(file);
+        index.restore();
+        if (index.isUpToDate()) return index;
+
+        index.build();
+        if (save) index.save();
+        return index;
+    }
+
+    /**
+     * Indexes the whole file, continuing where the last call stopped
+     *
+     * @return this index
+     * @throws IOException if the file could not be read
+     */
+    public LineIndex build() throws IOException {
+        while (indexMore(MAP_CHUNK_SIZE) > 0) {
+            // keep indexing until the end of the file
+        }
+        return this;
+    }
+
+    /**
+     * Indexes the whole file on an executor, lines are available through {@link #offsetOf(long)} as soon as they are indexed
+     *
+     * @param executor the executor to index on
+     * @return a future completing once the whole file is indexed
+     */
+    public CompletableFuture<LineIndex> buildAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return build();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not index: " + file, e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Indexes the next part of the file, if the file got shorter since it was indexed the index is started over
+     *
+     * @param maxBytes the maximum amount of bytes to index
+     * @return the amount of bytes indexed, 0 once the end of the file is reached
+     * @throws IOException if the file could not be read
+     */
+    public synchronized long indexMore(long maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            // a file that was rewritten instead of appended to can be the same length or longer, the bytes before the indexed end tell them apart
+            if (length < indexedBytes || (indexedBytes > 0 && file.lastModified() != lastModified && tailChecksum(channel, indexedBytes) != tailChecksum)) {
+                reset();
+            }
+
+            long start = indexedBytes;
+            long size = Math.min(maxBytes, length - start);
+            if (size <= 0) return 0;
+
+            long position = start;
+            long end = start + size;
+            while (position < end) {
+                long chunk = Math.min(MAP_CHUNK_SIZE, end - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+                for (int i = 0; i < chunk; i++) {
+                    byte b = buffer.get(i);
+                    // a '\r' ends a line unless it is followed by the '\n' of a "\r\n"
+                    if (lastWasNewline || (lastWasCarriageReturn && b != '\n')) addLineStart(position + i);
+                    lastWasNewline = b == '\n';
+                    lastWasCarriageReturn = b == '\r';
+                }
+                position += chunk;
+            }
+
+            lastModified = file.lastModified();
+            tailChecksum = tailChecksum(channel, end);
+            indexedBytes = end;
+            return size;
+        }
+    }
+
+    private void addLineStart(long offset) {
+        if (lineCount % stride == 0) {
+            long[] current = checkpoints;
+            if (checkpointCount == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                checkpoints = current;
+            }
+            current[checkpointCount] = offset;
+            checkpointCount = checkpointCount + 1;
+        }
+        lineCount = lineCount + 1;
+    }
+
+    /**
+     * Checksum of the bytes right before an offset
+     */
+    private static long tailChecksum(FileChannel channel, long end) throws IOException {
+        int size = (int) Math.min(TAIL_CHECK_SIZE, end);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        long position = end - size;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) return -1;
+        }
+        buffer.flip();
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    private void reset() {
+        checkpoints = new long[256];
+        checkpointCount = 0;
+        lineCount = 0;
+        indexedBytes = 0;
+        lastWasNewline = true;
+        lastWasCarriageReturn = false;
+        tailChecksum = 0;
+    }
+
+    /**
+     * Gets the byte offset a line starts at
+     *
+     * @param line the zero based line number
+     * @return the byte offset
+     * @throws IOException if the file could not be read
+     */
+    public long offsetOf(long line) throws IOException {
+        if (line < 0 || line >= lineCount) throw new IndexOutOfBoundsException("Line " + line + " is not indexed, indexed lines: " + lineCount);
+        long offset = checkpoints[(int) (line / stride)];
+        int skip = (int) (line % stride);
+        if (skip == 0) return offset;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            boolean carriageReturn = false;
+            while (true) {
+                buffer.clear();
+                int read = channel.read(buffer, offset);
+                if (read <= 0) throw new IOException("File changed while reading: " + file);
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer.get(i);
+                    if (carriageReturn && b != '\n' && --skip == 0) return offset + i;
+                    if (b == '\n' && --skip == 0) return offset + i + 1;
+                    carriageReturn = b == '\r';
+                }
+                offset += read;
+            }
+        }
+    }
+
+    /**
+     * @return the amount of lines indexed so far
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the amount of bytes indexed so far
+     */
+    public long getIndexedBytes() {
+        return indexedBytes;
+    }
+
+    /**
+     * @return true if the whole file is indexed and it was not modified since
+     */
+    public boolean isUpToDate() {
+        return indexedBytes == file.length() && lastModified == file.lastModified();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the file the index is saved to next to the indexed file
+     */
+    public File getIndexFile() {
+        return new File(file.getPath() + FILE_EXTENSION);
+    }
+
+    /**
+     * Saves the index next to the indexed file, it is written to a temporary file first so a crash never leaves a partial index behind
+     *
+     * @throws IOException if the index could not be written
+     */
+    public synchronized void save() throws IOException {
+        Path target = getIndexFile().toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stride);
+            out.writeLong(indexedBytes);
+            out.writeLong(lastModified);
+            out.writeLong(tailChecksum);
+            out.writeLong(lineCount);
+            out.writeBoolean(lastWasNewline);
+            out.writeBoolean(lastWasCarriageReturn);
+            out.writeInt(checkpointCount);
+            long[] current = checkpoints;
+            for (int i = 0; i < checkpointCount; i++) {
+                out.writeLong(current[i]);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fills this index from the index saved next to the file, only done once and only while nothing has been indexed yet.
+     * A restored index that is outdated is continued by the next {@link #indexMore(long)}, or started over if the file was rewritten
+     *
+     * @return true if the saved index was restored
+     */
+    public synchronized boolean restore() {
+        if (restoreAttempted || indexedBytes > 0) return false;
+        restoreAttempted = true;
+        File indexFile = getIndexFile();
+        if (!indexFile.isFile()) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            int savedStride = in.readInt();
+            long savedIndexedBytes = in.readLong();
+            long savedLastModified = in.readLong();
+            long savedTailChecksum = in.readLong();
+            long savedLineCount = in.readLong();
+            boolean savedLastWasNewline = in.readBoolean();
+            boolean savedLastWasCarriageReturn = in.readBoolean();
+            int count = in.readInt();
+            if (savedStride <= 0 || count < 0 || count != (savedLineCount + savedStride - 1) / savedStride) return false;
+            long[] savedCheckpoints = new long[Math.max(256, count)];
+            for (int i = 0; i < count; i++) {
+                savedCheckpoints[i] = in.readLong();
+            }
+
+            stride = savedStride;
+            lastModified = savedLastModified;
+            tailChecksum = savedTailChecksum;
+            lastWasNewline = savedLastWasNewline;
+            lastWasCarriageReturn = savedLastWasCarriageReturn;
+            checkpoints = savedCheckpoints;
+            checkpointCount = count;
+            indexedBytes = savedIndexedBytes;
+            lineCount = savedLineCount;
+            return true;
+        } catch (IOException e) {
+            // a truncated or unreadable index is ignored, the file gets indexed again
+            return false;
+        }
+    }
+
+    /**
+     * Loads the index saved next to a file, check {@link #isUpToDate()} before using it
+     *
+     * @param file the indexed file
+     * @return the index or null if no valid index was saved
+     */
+    public static LineIndex load(File file) {
+        LineIndex index = new LineIndex(file);
+        return index.restore() ? index : null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import java.util.List;
+
+/**
+ * A page of lines read from a file together with the byte offset to continue reading from
+ */
+public class LinePage {
+
+    private final List<String> lines;
+    private final long nextOffset;
+    private final boolean lastPage;
+
+    LinePage(List<String> lines, long nextOffset, boolean lastPage) {
+        this.lines = lines;
+        this.nextOffset = nextOffset;
+        this.lastPage = lastPage;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * @return the byte offset of the line following this page
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return true if the end of the file was reached
+     */
+    public boolean isLastPage() {
+        return lastPage;
+    }
+}
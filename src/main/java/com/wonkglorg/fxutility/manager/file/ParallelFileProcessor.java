@@ -0,0 +1,167 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import com.wonkglorg.fxutility.manager.util.FxBatcher;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Processes many files in parallel on a bounded pool, results are streamed back to the JavaFX Application Thread in batches
+ * either in the order of the files or as soon as they are done.
+ */
+public class ParallelFileProcessor implements Closeable {
+
+    /**
+     * Work done for each file
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface FileFunction<T> {
+        T apply(File file) throws Exception;
+    }
+
+    private final ForkJoinPool pool;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<?>> results = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Creates a processor using all available cores
+     */
+    public ParallelFileProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the maximum amount of files processed at the same time
+     */
+    public ParallelFileProcessor(int parallelism) {
+        pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("file-processor-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Processes the files in parallel
+     *
+     * @param files     the files to process
+     * @param function  the work done for each file
+     * @param ordered   true to deliver results in the order of the files, false to deliver them as soon as they are done
+     * @param onResults gets the results in batches on the JavaFX Application Thread, may be null
+     * @param <T>       the type of the results
+     * @return a future completing with all results in the order of the files, a failed file does not fail the future.
+     * If the processor is closed before all files are done it completes with a {@link CancellationException}
+     */
+    public <T> CompletableFuture<List<FileResult<T>>> process(List<File> files, FileFunction<T> function, boolean ordered, Consumer<List<FileResult<T>>> onResults) {
+        if (closed) throw new IllegalStateException("Processor is closed");
+        FxBatcher<FileResult<T>> batcher = onResults == null ? null : new FxBatcher<>(onResults);
+        OrderedEmitter<T> emitter = ordered && batcher != null ? new OrderedEmitter<>(files.size(), batcher) : null;
+
+        List<CompletableFuture<FileResult<T>>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            CompletableFuture<FileResult<T>> future = submit(files.get(i), i, function, emitter, batcher);
+            futures.add(future);
+            pending.add(future);
+            future.whenComplete((result, error) -> pending.remove(future));
+        }
+
+        CompletableFuture<List<FileResult<T>>> result = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<FileResult<T>> list = new ArrayList<>(futures.size());
+            for (CompletableFuture<FileResult<T>> future : futures) {
+                list.add(future.join());
+            }
+            return list;
+        });
+        results.add(result);
+        result.whenComplete((list, error) -> results.remove(result));
+        // close() may have run while the files were submitted and missed the futures added after it
+        if (closed) cancelPending();
+        return result;
+    }
+
+    private <T> CompletableFuture<FileResult<T>> submit(File file, int index, FileFunction<T> function, OrderedEmitter<T> emitter, FxBatcher<FileResult<T>> batcher) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                FileResult<T> result;
+                try {
+                    result = new FileResult<>(file, index, function.apply(file), null);
+                } catch (Exception e) {
+                    result = new FileResult<>(file, index, null, e);
+                }
+                if (emitter != null) emitter.complete(result);
+                else if (batcher != null) batcher.add(result);
+                return result;
+            }, pool);
+        } catch (RejectedExecutionException e) {
+            // the pool was shut down by close() while the files were submitted
+            CompletableFuture<FileResult<T>> future = new CompletableFuture<>();
+            future.cancel(false);
+            return future;
+        }
+    }
+
+    /**
+     * Stops the pool, files that are not processed yet are skipped and the futures of all running {@link #process} calls complete with a {@link CancellationException}
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pool.shutdownNow();
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        // the returned futures are cancelled first, cancelling a file first would complete them with a wrapped exception instead
+        for (CompletableFuture<?> future : results) {
+            future.cancel(false);
+        }
+        for (CompletableFuture<?> future : pending) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Passes results on in the order of the files, holding back results until all earlier ones are done
+     */
+    private static final class OrderedEmitter<T> {
+        private final List<FileResult<T>> pending;
+        private final FxBatcher<FileResult<T>> batcher;
+        private int next;
+
+        OrderedEmitter(int size, FxBatcher<FileResult<T>> batcher) {
+            this.pending = new ArrayList<>(Collections.nCopies(size, null));
+            this.batcher = batcher;
+        }
+
+        void complete(FileResult<T> result) {
+            List<FileResult<T>> ready;
+            synchronized (this) {
+                pending.set(result.getIndex(), result);
+                int end = next;
+                while (end < pending.size() && pending.get(end) != null) {
+                    end++;
+                }
+                if (end == next) return;
+                ready = new ArrayList<>(pending.subList(next, end));
+                Collections.fill(pending.subList(next, end), null);
+                next = end;
+            }
+            batcher.addAll(ready);
+        }
+    }
+}
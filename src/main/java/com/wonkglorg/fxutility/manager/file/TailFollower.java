@@ -0,0 +1,100 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import com.wonkglorg.fxutility.manager.util.FxBatcher;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Follows a growing file by checking its length periodically and reading only the bytes appended since the last check.
+ * New lines are delivered on the JavaFX Application Thread at most once per pulse. If the file gets shorter it is read again from the start.
+ * <p>
+ * The shared scheduler only compares the length of the file, the lines are read on the io executor with at most one read at a time.
+ * Each read stops after a limited amount of lines or bytes, the rest is read on the following polls.
+ */
+public class TailFollower implements Closeable {
+
+    static final long DEFAULT_POLL_INTERVAL = 250;
+    private static final int MAX_LINES_PER_READ = 10_000;
+    private static final long MAX_BYTES_PER_READ = 4L * 1024 * 1024;
+
+    private final TxtFileReader reader;
+    private final File file;
+    private final FxBatcher<String> batcher;
+    private final ScheduledFuture<?> poller;
+    private final AtomicBoolean reading = new AtomicBoolean();
+    private volatile long offset;
+    private volatile boolean closed;
+
+    TailFollower(TxtFileReader reader, long offset, long pollIntervalMillis, Consumer<List<String>> onLines) {
+        if (pollIntervalMillis <= 0) throw new IllegalArgumentException("Poll interval must be positive");
+        this.reader = reader;
+        this.file = reader.getFile();
+        this.offset = offset;
+        this.batcher = new FxBatcher<>(onLines);
+        this.poller = FileExecutors.scheduler().scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands a read to the io executor if the file changed, the scheduler itself only runs short tasks
+     */
+    private void poll() {
+        try {
+            if (file.length() == offset || !reading.compareAndSet(false, true)) return;
+            try {
+                FileExecutors.io().execute(this::read);
+            } catch (RuntimeException e) {
+                reading.set(false);
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            // an exception leaving the task would cancel it and silently stop following the file, try again on the next poll
+        }
+    }
+
+    private void read() {
+        try {
+            long length = file.length();
+            if (length < offset) offset = 0;
+            if (length == offset) return;
+
+            long start = offset;
+            List<String> lines = new ArrayList<>();
+            // only complete lines are read, a line still being written is picked up on the next poll
+            try (LineCursor cursor = reader.openCursor(start, true)) {
+                while (cursor.hasNext() && lines.size() < MAX_LINES_PER_READ && cursor.getPosition() - start < MAX_BYTES_PER_READ) {
+                    lines.add(cursor.next());
+                }
+                offset = cursor.getPosition();
+            }
+            if (!closed) batcher.addAll(lines);
+        } catch (IOException | RuntimeException e) {
+            // the file might be rotated or temporarily unavailable, try again on the next poll
+        } finally {
+            reading.set(false);
+        }
+    }
+
+    /**
+     * @return the byte offset up to which the file has been read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Stops following the file
+     */
+    @Override
+    public void close() {
+        closed = true;
+        poller.cancel(false);
+    }
+}
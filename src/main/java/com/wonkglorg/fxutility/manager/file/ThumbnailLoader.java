@@ -0,0 +1,511 @@
+package com.wonkglorg.fxutility.manager.file;
+
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Loads images as thumbnails, they are decoded in the background at the requested size so large images never have to be held in full.
+ * Loaded thumbnails are kept in a memory cache limited by the memory the pixels take up and optionally in a directory on disk,
+ * reading a thumbnail from disk skips decoding the original image.
+ * <p>
+ * The disk cache is limited as well, the thumbnails used the longest time ago are deleted first. Thumbnails of an older version of an
+ * image are deleted once a thumbnail of the new version is saved. The disk cache is read and written by a few threads of the loader,
+ * so requesting thousands of thumbnails at once does not start a thread for each of them.
+ */
+public class ThumbnailLoader {
+
+    private static final int MAGIC = 0x54484D42;
+    private static final int HEADER_SIZE = 12;
+    private static final String FILE_EXTENSION = ".thumb";
+    private static final int DISK_THREADS = 2;
+    private static final AtomicInteger LOADER_COUNT = new AtomicInteger();
+
+    private final Map<ThumbnailKey, Image> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<ThumbnailKey, Load> loading = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor diskExecutor;
+    private long memoryBudget;
+    private long usedBytes;
+    private volatile Path diskCache;
+    private volatile long diskBudget = 256L * 1024 * 1024;
+    private final Object diskLock = new Object();
+    private long diskUsedBytes = -1;
+
+    /**
+     * Creates a loader with a memory cache of 64MB
+     */
+    public ThumbnailLoader() {
+        this(64L * 1024 * 1024);
+    }
+
+    /**
+     * @param memoryBudget the maximum amount of bytes the cached thumbnails can take up
+     */
+    public ThumbnailLoader(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        int loader = LOADER_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        diskExecutor = new ThreadPoolExecutor(DISK_THREADS, DISK_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-io-" + loader + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        diskExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Loads a thumbnail, the image is scaled to fit into the given size keeping its aspect ratio
+     *
+     * @param file   the image file
+     * @param width  the maximum width of the thumbnail
+     * @param height the maximum height of the thumbnail
+     * @return a future completing on the JavaFX Application Thread with the thumbnail, already completed if it was cached. Each call gets its
+     * own future, the image stops decoding once the futures of all calls loading the same thumbnail are cancelled
+     */
+    public CompletableFuture<Image> load(File file, double width, double height) {
+        if (file == null) throw new NullPointerException("File cannot be null!");
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Thumbnail size must be positive");
+        ThumbnailKey key = new ThumbnailKey(file.getAbsolutePath(), file.lastModified(), file.length(), width, height);
+
+        Image cached = getCached(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        Load[] created = new Load[1];
+        Load load = loading.compute(key, (k, running) -> {
+            if (running != null && !running.future.isDone()) {
+                running.callers++;
+                return running;
+            }
+            created[0] = new Load();
+            return created[0];
+        });
+        CompletableFuture<Image> result = load.future.thenApply(Function.identity());
+        result.whenComplete((image, error) -> {
+            if (result.isCancelled()) release(key, load);
+        });
+        if (created[0] == null) return result;
+
+        CompletableFuture<Image> future = load.future;
+        future.whenComplete((image, error) -> loading.remove(key, load));
+        Path directory = diskCache;
+        if (directory == null) {
+            decode(file, key, future, null);
+        } else {
+            Path cacheFile = directory.resolve(key.fileName());
+            diskExecutor.execute(() -> {
+                if (future.isDone()) return;
+                Image image = readFromDisk(cacheFile);
+                if (image == null) {
+                    decode(file, key, future, cacheFile);
+                    return;
+                }
+                putCached(key, image);
+                Platform.runLater(() -> future.complete(image));
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Removes a cancelled caller from a load, the load is cancelled once no callers are left
+     */
+    private void release(ThumbnailKey key, Load load) {
+        boolean[] last = new boolean[1];
+        loading.computeIfPresent(key, (k, running) -> {
+            if (running != load || --running.callers > 0) return running;
+            last[0] = true;
+            return null;
+        });
+        // cancelled outside of compute, the listeners of the future update the map as well
+        if (last[0]) load.future.cancel(false);
+    }
+
+    /**
+     * Decodes an image using the background loading of {@link Image}
+     */
+    private void decode(File file, ThumbnailKey key, CompletableFuture<Image> future, Path cacheFile) {
+        if (!Platform.isFxApplicationThread()) {
+            // the progress of the image is reported on the JavaFX Application Thread, the listeners are added there as well
+            Platform.runLater(() -> decode(file, key, future, cacheFile));
+            return;
+        }
+        if (future.isDone()) return;
+        Image image = new Image(file.toURI().toString(), key.width, key.height, true, true, true);
+        ChangeListener<Object> listener = new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<?> observable, Object oldValue, Object newValue) {
+                if (!finish(image, key, future, cacheFile)) return;
+                image.progressProperty().removeListener(this);
+                image.errorProperty().removeListener(this);
+            }
+        };
+        image.progressProperty().addListener(listener);
+        image.errorProperty().addListener(listener);
+        if (finish(image, key, future, cacheFile)) {
+            image.progressProperty().removeListener(listener);
+            image.errorProperty().removeListener(listener);
+            return;
+        }
+        // an image that is no longer needed, for example because it was scrolled past, does not have to be decoded
+        future.whenComplete((result, error) -> {
+            if (!future.isCancelled()) return;
+            Platform.runLater(() -> {
+                image.progressProperty().removeListener(listener);
+                image.errorProperty().removeListener(listener);
+                image.cancel();
+            });
+        });
+    }
+
+    /**
+     * Completes the future if the image has finished loading
+     *
+     * @return true if the image has finished loading
+     */
+    private boolean finish(Image image, ThumbnailKey key, CompletableFuture<Image> future, Path cacheFile) {
+        if (future.isCancelled()) return true;
+        if (image.isError()) {
+            future.completeExceptionally(new IOException("Could not load image: " + key.path, image.getException()));
+            return true;
+        }
+        if (image.getProgress() < 1) return false;
+
+        putCached(key, image);
+        future.complete(image);
+        if (cacheFile != null) diskExecutor.execute(() -> saveToDisk(key, cacheFile, image));
+        return true;
+    }
+
+    /**
+     * Saves a thumbnail, deletes the thumbnails of older versions of the image and trims the disk cache to its budget
+     */
+    private void saveToDisk(ThumbnailKey key, Path cacheFile, Image image) {
+        long size = writeToDisk(cacheFile, image);
+        if (size < 0) return;
+        synchronized (diskLock) {
+            Path directory = cacheFile.getParent();
+            // the disk cache was changed while the thumbnail was written, the usage of the new directory is unknown
+            if (!directory.equals(diskCache)) return;
+            if (diskUsedBytes < 0) {
+                diskUsedBytes = 0;
+                forEachThumbnail(directory, (path, attributes) -> diskUsedBytes += attributes.size());
+            } else {
+                diskUsedBytes += size;
+            }
+
+            String source = key.sourcePrefix();
+            String version = key.versionPrefix();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, source + "*" + FILE_EXTENSION)) {
+                for (Path path : stream) {
+                    if (!path.getFileName().toString().startsWith(version)) delete(path);
+                }
+            } catch (IOException ignored) {
+                // stale thumbnails are removed once the cache is over its budget
+            }
+            if (diskUsedBytes > diskBudget) trimDisk(directory);
+        }
+    }
+
+    /**
+     * Deletes the thumbnails used the longest time ago until the disk cache is within its budget, must hold {@link #diskLock}
+     */
+    private void trimDisk(Path directory) {
+        List<Path> paths = new ArrayList<>();
+        Map<Path, FileTime> times = new HashMap<>();
+        // count again, replaced thumbnails are added to the usage without subtracting the old file
+        diskUsedBytes = 0;
+        forEachThumbnail(directory, (path, attributes) -> {
+            paths.add(path);
+            times.put(path, attributes.lastModifiedTime());
+            diskUsedBytes += attributes.size();
+        });
+        paths.sort(Comparator.comparing(times::get));
+        for (int i = 0; i < paths.size() && diskUsedBytes > diskBudget; i++) {
+            delete(paths.get(i));
+        }
+    }
+
+    /**
+     * Deletes a thumbnail from the disk cache, must hold {@link #diskLock}
+     */
+    private void delete(Path path) {
+        try {
+            long size = Files.size(path);
+            if (Files.deleteIfExists(path)) diskUsedBytes -= size;
+        } catch (IOException ignored) {
+            // deleted by someone else or still open, it is tried again on the next trim
+        }
+    }
+
+    private static void forEachThumbnail(Path directory, BiConsumer<Path, BasicFileAttributes> action) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path path : stream) {
+                try {
+                    action.accept(path, Files.readAttributes(path, BasicFileAttributes.class));
+                } catch (IOException ignored) {
+                    // deleted in the meantime
+                }
+            }
+        } catch (IOException ignored) {
+            // the directory is gone, there is nothing to count
+        }
+    }
+
+    /**
+     * Reads a thumbnail saved with {@link #writeToDisk(Path, Image)}
+     *
+     * @return the thumbnail or null if there is none or it could not be read
+     */
+    private static Image readFromDisk(Path cacheFile) {
+        if (!Files.exists(cacheFile)) return null;
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.read(header, 0) != HEADER_SIZE) return null;
+            header.flip();
+            if (header.getInt() != MAGIC) return null;
+            int width = header.getInt();
+            int height = header.getInt();
+            if (width <= 0 || height <= 0 || channel.size() != HEADER_SIZE + (long) width * height * 4) return null;
+
+            ByteBuffer pixels = ByteBuffer.allocate(width * height * 4);
+            long position = HEADER_SIZE;
+            while (pixels.hasRemaining()) {
+                int read = channel.read(pixels, position);
+                if (read < 0) return null;
+                position += read;
+            }
+            pixels.flip();
+            // the modification time marks when the thumbnail was last used, the disk cache deletes the oldest ones first
+            Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis()));
+            IntBuffer argb = pixels.asIntBuffer();
+            WritableImage image = new WritableImage(width, height);
+            image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, width);
+            return image;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the raw pixels of a thumbnail, the file is written next to its final location first so a crash never leaves a partial file behind
+     *
+     * @return the size of the written file or -1 if it could not be written
+     */
+    private static long writeToDisk(Path cacheFile, Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        if (width <= 0 || height <= 0 || image.getPixelReader() == null) return -1;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + width * height * 4);
+        buffer.putInt(MAGIC).putInt(width).putInt(height);
+        IntBuffer argb = buffer.asIntBuffer();
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, width);
+        buffer.position(0);
+
+        try {
+            Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return buffer.capacity();
+        } catch (IOException ignored) {
+            // the disk cache is optional, the thumbnail is decoded again next time
+            return -1;
+        }
+    }
+
+    private synchronized Image getCached(ThumbnailKey key) {
+        return cache.get(key);
+    }
+
+    private synchronized void putCached(ThumbnailKey key, Image image) {
+        Image previous = cache.put(key, image);
+        if (previous != null) usedBytes -= sizeOf(previous);
+        usedBytes += sizeOf(image);
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Image> iterator = cache.values().iterator();
+        while (usedBytes > memoryBudget && iterator.hasNext()) {
+            usedBytes -= sizeOf(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    /**
+     * Sets the directory thumbnails are saved in, thumbnails in it are used instead of decoding the image again
+     *
+     * @param directory the directory, gets created if it does not exist, or null to not use a disk cache
+     * @throws IOException if the directory could not be created
+     */
+    public void setDiskCache(Path directory) throws IOException {
+        if (directory != null) Files.createDirectories(directory);
+        synchronized (diskLock) {
+            diskCache = directory;
+            diskUsedBytes = -1;
+        }
+    }
+
+    public Path getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Sets the maximum amount of bytes the thumbnails on disk can take up, the thumbnails used the longest time ago are deleted first.
+     * The disk cache is trimmed the next time a thumbnail is saved
+     *
+     * @param diskBudget the budget in bytes
+     */
+    public void setDiskBudget(long diskBudget) {
+        this.diskBudget = diskBudget;
+    }
+
+    public long getDiskBudget() {
+        return diskBudget;
+    }
+
+    /**
+     * Sets the maximum amount of bytes the cached thumbnails can take up, the least recently used thumbnails are removed first
+     *
+     * @param memoryBudget the budget in bytes
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        trim();
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return the amount of bytes the cached thumbnails take up
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Removes all thumbnails from the memory cache, the disk cache is kept
+     */
+    public synchronized void clear() {
+        cache.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * A running load shared by all calls requesting the same thumbnail, guarded by the {@link #loading} map
+     */
+    private static final class Load {
+        private final CompletableFuture<Image> future = new CompletableFuture<>();
+        private int callers = 1;
+    }
+
+    /**
+     * Identifies a thumbnail by its file, the state of the file and the requested size
+     */
+    private static final class ThumbnailKey {
+        private final String path;
+        private final long lastModified;
+        private final long length;
+        private final double width;
+        private final double height;
+
+        ThumbnailKey(String path, long lastModified, long length, double width, double height) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @return the name of the file the thumbnail is saved as in the disk cache, made up of the source, the version of the source and the size
+         */
+        String fileName() {
+            return versionPrefix() + hash(width + "x" + height).substring(0, 16) + FILE_EXTENSION;
+        }
+
+        /**
+         * @return the start of the names of all thumbnails of the image file
+         */
+        String sourcePrefix() {
+            return hash(path) + "-";
+        }
+
+        /**
+         * @return the start of the names of all thumbnails of this version of the image file
+         */
+        String versionPrefix() {
+            return sourcePrefix() + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "-";
+        }
+
+        private static String hash(String value) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+                StringBuilder builder = new StringBuilder(digest.length * 2);
+                for (byte b : digest) {
+                    builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+                }
+                return builder.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ThumbnailKey other)) return false;
+            return lastModified == other.lastModified && length == other.length && width == other.width && height == other.height && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, length, width, height);
+        }
+    }
+}
@@ -1,36 +1,319 @@
 package com.wonkglorg.fxutility.manager.file;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TxtFileReader {
 
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long INDEX_STEP = 4L * 1024 * 1024;
+    private static final long PROGRESS_STEP = 256L * 1024;
+
     private final File file;
+    private final Charset charset;
+    private final int bufferSize;
+    private LineIndex lineIndex;
+    private boolean persistLineIndex;
 
     public TxtFileReader(File file) {
+        this(file, Charset.defaultCharset());
+    }
+
+    public TxtFileReader(File file, Charset charset) {
+        this(file, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param file       the file to read
+     * @param charset    the charset of the file, it has to encode '\n' and '\r' as single bytes
+     * @param bufferSize the amount of bytes read from the file at once
+     */
+    public TxtFileReader(File file, Charset charset, int bufferSize) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
         this.file = file;
+        this.charset = charset;
+        this.bufferSize = bufferSize;
     }
 
+    /**
+     * Reads the first lines of the file
+     *
+     * @param amount the maximum amount of lines
+     * @return the lines
+     */
     public List<String> read(int amount) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        return readPage(0, amount).getLines();
+    }
+
+    /**
+     * Reads the first lines of the file on the io executor
+     *
+     * @param amount the maximum amount of lines
+     * @return the running task, its progress is the share of the file read so far
+     */
+    public IoTask<List<String>> readAsync(int amount) {
+        return IoTask.submit(task -> readPage(0, amount, task).getLines());
+    }
+
+    /**
+     * Reads a page of lines starting at a byte offset on the io executor
+     *
+     * @param offset the byte offset of the first line
+     * @param amount the maximum amount of lines
+     * @return the running task, its progress is the share of the file read so far
+     */
+    public IoTask<LinePage> readPageAsync(long offset, int amount) {
+        return IoTask.submit(task -> readPage(offset, amount, task));
+    }
+
+    /**
+     * Reads a page of lines starting at a byte offset, use {@link LinePage#getNextOffset()} to read the following page
+     *
+     * @param offset the byte offset of the first line
+     * @param amount the maximum amount of lines
+     * @return the page
+     */
+    public LinePage readPage(long offset, int amount) {
+        try {
+            return readPage(offset, amount, null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads a page of lines, reporting progress to the task every {@link #PROGRESS_STEP} bytes and stopping early if it gets cancelled
+     *
+     * @param task the task running the read or null
+     */
+    private LinePage readPage(long offset, int amount, IoTask<?> task) throws IOException {
+        long length = file.length();
+        try (LineCursor cursor = openCursor(offset)) {
             List<String> lines = new ArrayList<>();
-            int count = 0;
-            String line;
-            line = reader.readLine();
-            while (line != null && amount > count) {
-                System.out.println(line);
-                count++;
-                lines.add(line);
-                line = reader.readLine();
+            long reported = offset;
+            while (lines.size() < amount && cursor.hasNext()) {
+                if (task != null) {
+                    if (task.isCancelled()) break;
+                    long position = cursor.getPosition();
+                    if (position - reported >= PROGRESS_STEP) {
+                        task.reportProgress(position, length);
+                        reported = position;
+                    }
+                }
+                lines.add(cursor.next());
             }
+            if (task != null) task.reportProgress(cursor.getPosition(), length);
+            return new LinePage(lines, cursor.getPosition(), !cursor.hasNext());
+        }
+    }
+
+    /**
+     * Passes the lines starting at a byte offset to a consumer until it returns false or the end of the file is reached
+     *
+     * @param offset   the byte offset of the first line
+     * @param consumer gets each line, return false to stop reading
+     * @return the byte offset of the first line that was not consumed
+     */
+    public long forEachLine(long offset, Predicate<String> consumer) {
+        try (LineCursor cursor = openCursor(offset)) {
+            while (cursor.hasNext()) {
+                if (!consumer.test(cursor.next())) break;
+            }
+            return cursor.getPosition();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            return lines;
-        } catch (Exception e) {
+    /**
+     * Streams all lines of the file, the stream has to be closed to release the file
+     *
+     * @return the lines
+     */
+    public Stream<String> lines() {
+        return lines(0);
+    }
+
+    /**
+     * Streams the lines starting at a byte offset, the stream has to be closed to release the file
+     *
+     * @param offset the byte offset of the first line
+     * @return the lines
+     */
+    public Stream<String> lines(long offset) {
+        LineCursor cursor;
+        try {
+            cursor = openCursor(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Reads lines by their line number. The line index is loaded if it was saved next to the file, otherwise the file is only indexed
+     * up to the requested lines, use {@link #buildLineIndexAsync(Executor)} to index the rest in the background
+     *
+     * @param from  the zero based number of the first line
+     * @param count the maximum amount of lines
+     * @return the lines, empty if the file has less than from lines
+     */
+    public List<String> readLines(long from, int count) {
+        try {
+            LineIndex index = restoreLineIndex();
+            // picks up appended lines and starts over if the file was rewritten
+            if (!index.isUpToDate()) index.indexMore(0);
+            while (from >= index.getLineCount() && index.indexMore(INDEX_STEP) > 0) {
+                // index only as far as needed
+            }
+            if (from >= index.getLineCount()) return new ArrayList<>();
+            return readPage(index.offsetOf(from), count).getLines();
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    /**
+     * Gets the line index of the file, it is loaded from next to the file and built or continued if it is not up to date
+     *
+     * @return the line index
+     * @throws IOException if the file could not be read
+     */
+    public LineIndex getLineIndex() throws IOException {
+        LineIndex index = restoreLineIndex();
+        if (!index.isUpToDate()) {
+            index.build();
+            if (persistLineIndex) index.save();
+        }
+        return index;
+    }
+
+    /**
+     * Builds the line index on an executor, the index saved next to the file is loaded first and only continued if the file changed.
+     * {@link #readLines(long, int)} can already read the indexed lines while it is being built
+     *
+     * @param executor the executor to build the index on
+     * @return a future completing with the finished index
+     */
+    public synchronized CompletableFuture<LineIndex> buildLineIndexAsync(Executor executor) {
+        if (lineIndex == null) lineIndex = new LineIndex(file);
+        LineIndex index = lineIndex;
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                index.restore();
+                if (index.isUpToDate()) return index;
+                index.build();
+                if (persistLineIndex) index.save();
+                return index;
+            } catch (IOException e) {
+                throw new RuntimeException("Could not index: " + file, e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Gets the line index as far as it is indexed right now without reading the file
+     *
+     * @return the line index or null if none was created yet
+     */
+    public synchronized LineIndex getCurrentLineIndex() {
+        return lineIndex;
+    }
+
+    /**
+     * Gets the line index without indexing anything, restoring the saved index the first time
+     */
+    private LineIndex restoreLineIndex() {
+        LineIndex index;
+        synchronized (this) {
+            if (lineIndex == null) lineIndex = new LineIndex(file);
+            index = lineIndex;
+        }
+        index.restore();
+        return index;
+    }
+
+    /**
+     * Sets if newly built line indexes are saved next to the file, so opening it again does not have to index it again
+     *
+     * @param persistLineIndex true to save the line index
+     */
+    public void setPersistLineIndex(boolean persistLineIndex) {
+        this.persistLineIndex = persistLineIndex;
+    }
+
+    public boolean isPersistLineIndex() {
+        return persistLineIndex;
+    }
+
+    /**
+     * Opens a cursor reading the lines starting at a byte offset, it has to be closed to release the file
+     *
+     * @param offset the byte offset of the first line
+     * @return the cursor
+     * @throws IOException if the file could not be opened
+     */
+    public LineCursor openCursor(long offset) throws IOException {
+        return openCursor(offset, false);
+    }
+
+    /**
+     * @param completeLinesOnly true to stop before a last line that is not terminated by a line break yet
+     */
+    LineCursor openCursor(long offset, boolean completeLinesOnly) throws IOException {
+        return new LineCursor(file, charset, bufferSize, offset, completeLinesOnly);
+    }
+
+    /**
+     * Follows the end of the file, lines appended from now on are delivered in batches on the JavaFX Application Thread
+     *
+     * @param onLines gets the new lines, at most once per pulse
+     * @return the follower, close it to stop following
+     */
+    public TailFollower follow(Consumer<List<String>> onLines) {
+        return follow(file.length(), TailFollower.DEFAULT_POLL_INTERVAL, onLines);
+    }
+
+    /**
+     * Follows the file starting at a byte offset, the existing lines after the offset and all lines appended later are delivered
+     * in batches on the JavaFX Application Thread
+     *
+     * @param offset             the byte offset to start at
+     * @param pollIntervalMillis how often the file is checked for new lines
+     * @param onLines            gets the new lines, at most once per pulse
+     * @return the follower, close it to stop following
+     */
+    public TailFollower follow(long offset, long pollIntervalMillis, Consumer<List<String>> onLines) {
+        return new TailFollower(this, offset, pollIntervalMillis, onLines);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
 
+    public int getBufferSize() {
+        return bufferSize;
     }
 }
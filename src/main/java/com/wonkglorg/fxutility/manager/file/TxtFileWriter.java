@@ -12,13 +12,59 @@ public class TxtFileWriter {
         this.file = file;
     }
 
+    /**
+     * Writes the lines to the file on the io executor, replacing its content
+     *
+     * @param text the lines to write
+     * @return the running task, its progress is the share of lines written so far
+     */
+    public IoTask<Void> writeAsync(String... text) {
+        return IoTask.submit(task -> {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+                for (int i = 0; i < text.length && !task.isCancelled(); i++) {
+                    writer.write(text[i]);
+                    writer.write('\n');
+                    task.reportProgress(i + 1, text.length);
+                }
+            }
+            return null;
+        });
+    }
+
     public void write(String... text) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for(String line : text){
-                writer.write(line + "\n");
+        write(false, text);
+    }
+
+    /**
+     * Appends the lines to the end of the file
+     *
+     * @param text the lines to append
+     */
+    public void append(String... text) {
+        write(true, text);
+    }
+
+    private void write(boolean append, String... text) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, append))) {
+            for (String line : text) {
+                writer.write(line);
+                writer.write('\n');
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Opens a long lived writer appending to the file, use it for files written to many times
+     *
+     * @return the writer, it has to be closed once it is no longer needed
+     */
+    public BufferedTxtWriter openAppending() {
+        try {
+            return new BufferedTxtWriter(file, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -5,6 +5,7 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.util.List;
 import java.util.Optional;
 
 public class ChooserUtil {
@@ -72,6 +73,38 @@ public class ChooserUtil {
     }
 
 
+    /**
+     * Open a file chooser dialog allowing multiple files to be selected
+     *
+     * @param defaultDirectory The default directory to open the dialog in
+     * @param title            The title of the dialog
+     * @param fileType         The file type filter
+     * @return The selected files or an empty list if no file was selected
+     */
+    public List<File> multiFileChooser(File defaultDirectory, String title, FileChooser.ExtensionFilter... fileType) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().addAll(fileType);
+        fileChooser.setTitle(title);
+        fileChooser.setInitialDirectory(defaultDirectory);
+
+        List<File> files = fileChooser.showOpenMultipleDialog(stage);
+
+        if (files == null) {
+            return List.of();
+        }
+        return files.stream().filter(File::isFile).toList();
+    }
+
+    /**
+     * Open a file chooser dialog allowing multiple files to be selected, in the user home directory with a default "Select Files" title
+     *
+     * @param fileType All allowed file types
+     * @return The selected files or an empty list if no file was selected
+     */
+    public List<File> multiFileChooser(FileChooser.ExtensionFilter... fileType) {
+        return multiFileChooser(new File(System.getProperty("user.home")), "Select Files", fileType);
+    }
+
     /**
      * Open a file chooser dialog
      *
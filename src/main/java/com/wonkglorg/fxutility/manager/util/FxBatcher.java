@@ -0,0 +1,94 @@
+package com.wonkglorg.fxutility.manager.util;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Collects items from any thread and hands them to a consumer on the JavaFX Application Thread, at most once per pulse.
+ * Everything added between two pulses is delivered as one batch.
+ *
+ * @param <T> the type of the items
+ */
+public class FxBatcher<T> {
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Consumer<List<T>> consumer;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            deliver();
+        }
+    };
+
+    /**
+     * @param consumer gets each batch on the JavaFX Application Thread
+     */
+    public FxBatcher(Consumer<List<T>> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Adds an item to the next batch, can be called from any thread
+     *
+     * @param item the item
+     */
+    public void add(T item) {
+        queue.add(item);
+        schedule();
+    }
+
+    /**
+     * Adds items to the next batch, can be called from any thread
+     *
+     * @param items the items
+     */
+    public void addAll(Collection<? extends T> items) {
+        if (items.isEmpty()) return;
+        queue.addAll(items);
+        schedule();
+    }
+
+    /**
+     * Delivers all queued items right away instead of waiting for the next pulse, must be called on the JavaFX Application Thread
+     */
+    public void flush() {
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            batch.add(item);
+        }
+        if (!batch.isEmpty()) consumer.accept(batch);
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(timer::start);
+        }
+    }
+
+    private void deliver() {
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            batch.add(item);
+        }
+
+        if (batch.isEmpty()) {
+            scheduled.set(false);
+            // items added right before the flag was cleared did not schedule a delivery, keep running for them
+            if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) timer.stop();
+            return;
+        }
+        consumer.accept(batch);
+    }
+}
@@ -0,0 +1,145 @@
+package com.wonkglorg.fxutility.manager.util.fader;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Steps all running fades from a single {@link AnimationTimer}, a pane can only have one running fade at a time
+ */
+final class FadeDriver {
+
+    private static final FadeDriver instance = new FadeDriver();
+
+    private final List<ActiveFade> active = new ArrayList<>();
+    private final Map<Pane, ActiveFade> fadesByPane = new IdentityHashMap<>();
+    private boolean running;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            step(now);
+        }
+    };
+
+    private FadeDriver() {
+    }
+
+    static FadeDriver getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts a fade, a fade already running on the pane is replaced and the new fade continues from its current opacity
+     */
+    void start(Pane pane, Direction direction, Fade fade, double duration) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> start(pane, direction, fade, duration));
+            return;
+        }
+
+        ActiveFade activeFade = fadesByPane.get(pane);
+        if (activeFade == null) {
+            activeFade = new ActiveFade(pane);
+            activeFade.opacity = (fade == Fade.IN) ? 0 : 1;
+            fadesByPane.put(pane, activeFade);
+            active.add(activeFade);
+        }
+        activeFade.direction = direction;
+        activeFade.fade = fade;
+        activeFade.duration = duration;
+        activeFade.lastTime = 0;
+
+        if (!running) {
+            running = true;
+            timer.start();
+        }
+    }
+
+    /**
+     * Stops the fade running on the pane, leaving the pane as it currently is
+     *
+     * @return true if a fade was running
+     */
+    boolean cancel(Pane pane) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> cancel(pane));
+            return fadesByPane.containsKey(pane);
+        }
+
+        ActiveFade activeFade = fadesByPane.remove(pane);
+        if (activeFade == null) return false;
+        active.remove(activeFade);
+        return true;
+    }
+
+    boolean isFading(Pane pane) {
+        return fadesByPane.containsKey(pane);
+    }
+
+    private void step(long now) {
+        //iterate backwards so finished fades can be swapped with the last element and removed without allocating
+        for (int i = active.size() - 1; i >= 0; i--) {
+            ActiveFade activeFade = active.get(i);
+            if (activeFade.step(now)) {
+                int last = active.size() - 1;
+                active.set(i, active.get(last));
+                active.remove(last);
+                fadesByPane.remove(activeFade.pane);
+            }
+        }
+
+        if (active.isEmpty()) {
+            running = false;
+            timer.stop();
+        }
+    }
+
+    private static final class ActiveFade {
+        private final Pane pane;
+        private Direction direction;
+        private Fade fade;
+        private double duration;
+        private double opacity;
+        private long lastTime;
+
+        ActiveFade(Pane pane) {
+            this.pane = pane;
+        }
+
+        /**
+         * @return true if the fade is finished
+         */
+        boolean step(long now) {
+            if (lastTime == 0) {
+                lastTime = now;
+                return false;
+            }
+
+            double deltaTime = (now - lastTime) / 1e9;
+            lastTime = now;
+
+            double deltaOpacity = fade.getValue() * deltaTime / duration;
+            opacity = Math.max(0, Math.min(1, opacity + deltaOpacity));
+            pane.setOpacity(opacity);
+
+            switch (direction) {
+                case LEFT, RIGHT ->
+                        pane.setTranslateX(fade.getValue() * direction.getTranslationX() * (pane.getWidth() / 2 * (1 - opacity)));
+                case UP, DOWN ->
+                        pane.setTranslateY(fade.getValue() * direction.getTranslationY() * (pane.getHeight() / 2 * (1 - opacity)));
+            }
+
+            if ((fade == Fade.IN && opacity >= 1) || (fade == Fade.OUT && opacity <= 0)) {
+                pane.setOpacity((fade == Fade.IN) ? 1 : 0);
+                return true;
+            }
+            return false;
+        }
+    }
+}
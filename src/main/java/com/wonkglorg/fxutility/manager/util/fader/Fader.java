@@ -1,6 +1,5 @@
 package com.wonkglorg.fxutility.manager.util.fader;
 
-import javafx.animation.AnimationTimer;
 import javafx.scene.layout.Pane;
 
 /**
@@ -29,7 +28,8 @@ public class Fader {
     }
 
     /**
-     * Fades a pane in or out from a given direction the direction means what direction the pane will move in while fading
+     * Fades a pane in or out from a given direction the direction means what direction the pane will move in while fading.
+     * A fade already running on the pane is replaced, the new fade continues from the current opacity
      *
      * @param pane      The pane to fade
      * @param direction The direction to fade in from or out to
@@ -37,37 +37,27 @@ public class Fader {
      * @param duration  The duration of the fade
      */
     public static void fade(Pane pane, Direction direction, Fade fade, double duration) {
-        new AnimationTimer() {
-            private long lastTime = 0;
-            private double opacity = (fade == Fade.IN) ? 0 : 1;
-
-            @Override
-            public void handle(long now) {
-                if (lastTime == 0) {
-                    lastTime = now;
-                    return;
-                }
-
-                double deltaTime = (now - lastTime) / 1e9;
-                lastTime = now;
-
-                double deltaOpacity = fade.getValue() * deltaTime / duration;
-                opacity = Math.max(0, Math.min(1, opacity + deltaOpacity));
-                pane.setOpacity(opacity);
+        FadeDriver.getInstance().start(pane, direction, fade, duration);
+    }
 
-                switch (direction) {
-                    case LEFT, RIGHT ->
-                            pane.setTranslateX(fade.getValue() * direction.getTranslationX() * (pane.getWidth() / 2 * (1 - opacity)));
-                    case UP, DOWN ->
-                            pane.setTranslateY(fade.getValue() * direction.getTranslationY() * (pane.getHeight() / 2 * (1 - opacity)));
-                }
+    /**
+     * Stops the fade running on a pane, the pane keeps its current opacity and translation
+     *
+     * @param pane The pane to stop fading
+     * @return true if a fade was running on the pane
+     */
+    public static boolean cancel(Pane pane) {
+        return FadeDriver.getInstance().cancel(pane);
+    }
 
-                if ((fade == Fade.IN && opacity >= 1) || (fade == Fade.OUT && opacity <= 0)) {
-                    pane.setOpacity((fade == Fade.IN) ? 1 : 0);
-                    stop();
-                }
-            }
-        }.start();
+    /**
+     * Checks if a fade is currently running on a pane
+     *
+     * @param pane The pane to check
+     * @return true if the pane is fading
+     */
+    public static boolean isFading(Pane pane) {
+        return FadeDriver.getInstance().isFading(pane);
     }
 
 }
@@ -1,11 +1,15 @@
 module com.wonkglorg.fxutility {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.xml;
+    requires java.management;
 
     exports com.wonkglorg.fxutility.manager.containers.dragpane;
+    exports com.wonkglorg.fxutility.manager.containers.textview;
     exports com.wonkglorg.fxutility.manager.util;
     exports com.wonkglorg.fxutility.manager;
     exports com.wonkglorg.fxutility.manager.util.fader;
+    exports com.wonkglorg.fxutility.manager.file;
 
     opens com.wonkglorg.fxutility.manager to javafx.fxml;
 }
\ No newline at end of file
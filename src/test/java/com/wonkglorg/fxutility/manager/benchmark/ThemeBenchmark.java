@@ -0,0 +1,154 @@
+package com.wonkglorg.fxutility.manager.benchmark;
+
+import com.wonkglorg.fxutility.manager.ColorPallet;
+import com.wonkglorg.fxutility.manager.StylesheetManager;
+import com.wonkglorg.fxutility.manager.ThemeManager;
+import javafx.application.Platform;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.FlowPane;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares switching themes with {@link ThemeManager} against swapping whole stylesheets. It is not part of the library, run
+ * {@link #main(String[])} from the test classpath, optionally with the node count, warm-up rounds and measured rounds as arguments.
+ * <p>
+ * Both scenes style the same nodes with the same rules, they only differ in where the pallet colors come from: a stylesheet per pallet that
+ * gets swapped, or one shared stylesheet and the inline style of the root.
+ */
+public class ThemeBenchmark {
+
+    /**
+     * Rules shared by both approaches, they only use the looked-up colors of the pallet
+     */
+    private static final List<String> RULES = List.of(
+            ".label { -fx-text-fill: " + ColorPallet.TEXT_COLOR + "; }",
+            ".button { -fx-background-color: " + ColorPallet.PRIMARY_COLOR + "; -fx-text-fill: " + ColorPallet.TEXT_COLOR + "; }");
+
+    /**
+     * Starts the JavaFX toolkit, runs the benchmark on the JavaFX Application Thread and prints the result
+     *
+     * @param args the node count, warm-up rounds and measured rounds, defaults to 10000, 20 and 40
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int warmUpRounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.startup(() -> {
+            try {
+                System.out.println(new ThemeBenchmark().run(nodeCount, warmUpRounds, rounds));
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+        Platform.exit();
+    }
+
+    /**
+     * Runs the benchmark, has to be called on the JavaFX Application Thread
+     *
+     * @param nodeCount    the amount of nodes in each scene, for example 10_000
+     * @param warmUpRounds the amount of theme switches run for each approach before measuring
+     * @param rounds       the amount of theme switches measured for each approach, the approaches take turns going first
+     * @return the average time per switch of both approaches
+     * @throws IOException if the stylesheets could not be written
+     */
+    public String run(int nodeCount, int warmUpRounds, int rounds) throws IOException {
+        StylesheetManager stylesheetManager = new StylesheetManager();
+        String dark = writeStylesheet(stylesheetManager, "theme-dark", ColorPallet.DARK);
+        String light = writeStylesheet(stylesheetManager, "theme-light", ColorPallet.NON);
+        String rules = writeStylesheet(stylesheetManager, "theme-rules", null);
+
+        //stylesheet swapping, every switch replaces the stylesheet of the scene
+        Scene stylesheetScene = new Scene(createContent(nodeCount));
+        stylesheetScene.getStylesheets().setAll(light);
+        pass(stylesheetScene.getRoot());
+
+        //looked-up colors, every switch replaces the inline style of the root
+        Scene themeScene = new Scene(createContent(nodeCount));
+        themeScene.getStylesheets().setAll(rules);
+        ThemeManager.apply(themeScene.getRoot(), ColorPallet.NON);
+        pass(themeScene.getRoot());
+
+        for (int i = 0; i < warmUpRounds; i++) {
+            switchStylesheet(stylesheetScene, i % 2 == 0 ? dark : light);
+            switchTheme(themeScene, i % 2 == 0 ? ColorPallet.DARK : ColorPallet.NON);
+        }
+
+        long stylesheetTime = 0;
+        long themeTime = 0;
+        for (int i = 0; i < rounds; i++) {
+            String stylesheet = i % 2 == 0 ? light : dark;
+            ColorPallet pallet = i % 2 == 0 ? ColorPallet.NON : ColorPallet.DARK;
+            if (i % 4 < 2) {
+                stylesheetTime += switchStylesheet(stylesheetScene, stylesheet);
+                themeTime += switchTheme(themeScene, pallet);
+            } else {
+                themeTime += switchTheme(themeScene, pallet);
+                stylesheetTime += switchStylesheet(stylesheetScene, stylesheet);
+            }
+        }
+
+        return String.format("%d nodes, %d warm-up and %d measured switches%nstylesheet swap: %.2f ms%nlooked-up colors: %.2f ms",
+                nodeCount, warmUpRounds, rounds, stylesheetTime / 1e6 / rounds, themeTime / 1e6 / rounds);
+    }
+
+    private static long switchStylesheet(Scene scene, String stylesheet) {
+        long start = System.nanoTime();
+        scene.getStylesheets().setAll(stylesheet);
+        pass(scene.getRoot());
+        return System.nanoTime() - start;
+    }
+
+    private static long switchTheme(Scene scene, ColorPallet pallet) {
+        long start = System.nanoTime();
+        ThemeManager.apply(scene.getRoot(), pallet);
+        pass(scene.getRoot());
+        return System.nanoTime() - start;
+    }
+
+    private static Parent createContent(int nodeCount) {
+        FlowPane pane = new FlowPane();
+        pane.setPrefWrapLength(2000);
+        for (int i = 0; i < nodeCount; i++) {
+            pane.getChildren().add(i % 2 == 0 ? new Label("Label " + i) : new Button("Button " + i));
+        }
+        return pane;
+    }
+
+    /**
+     * Applies css and lays the scene out, the same work a pulse does after the theme changed
+     */
+    private static void pass(Parent root) {
+        root.applyCss();
+        root.layout();
+    }
+
+    /**
+     * Writes and compiles a stylesheet containing the shared rules, with the pallet defined on the root the same way {@link ThemeManager} does
+     *
+     * @param pallet the pallet to define or null to only write the rules
+     */
+    private static String writeStylesheet(StylesheetManager stylesheetManager, String name, ColorPallet pallet) throws IOException {
+        Path file = Files.createTempFile(name, ".css");
+        file.toFile().deleteOnExit();
+        List<String> lines = new ArrayList<>();
+        if (pallet != null) lines.add(".root { " + pallet.toStyle() + " }");
+        lines.addAll(RULES);
+        Files.write(file, lines);
+        return stylesheetManager.compile(file.toUri().toURL()).toExternalForm();
+    }
+}